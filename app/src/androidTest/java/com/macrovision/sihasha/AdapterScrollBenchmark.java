@@ -0,0 +1,128 @@
+package com.macrovision.sihasha;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.macrovision.sihasha.adapters.PatientAdapter;
+import com.macrovision.sihasha.models.Patient;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Frame-time benchmark for a fast fling through the patient list.
+ *
+ * Scrolls a 5,000-patient RecyclerView by a fixed distance per simulated frame and
+ * times each step (bind + layout of the rows that scroll in). The same fling is run
+ * with the current PatientAdapter and with a copy of the old bind path, which logged
+ * and created two click listeners per bind, and both are reported to logcat under
+ * "AdapterScrollBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class AdapterScrollBenchmark {
+    private static final String TAG = "AdapterScrollBenchmark";
+
+    private static final int PATIENTS = 5000;
+    private static final int WARMUP_FRAMES = 60;
+    private static final int FRAMES = 600;
+    private static final int PX_PER_FRAME = 220; // roughly a fast fling at 60 fps
+    private static final long FRAME_BUDGET_NS = 16_666_667L;
+
+    // The bind path as it was: a log line and two new listeners for every row
+    private static class LegacyBindPatientAdapter extends PatientAdapter {
+        LegacyBindPatientAdapter(List<Patient> patients, OnPatientClickListener listener) {
+            super(patients, listener);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+            Patient patient = getItem(position);
+            Log.d("PatientAdapter", "Binding patient at position " + position + ": " + patient.getName());
+            super.onBindViewHolder(holder, position);
+            holder.itemView.setOnClickListener(v -> Log.d(TAG, "click " + patient.getId()));
+            holder.itemView.setOnLongClickListener(v -> {
+                Log.d(TAG, "long click " + patient.getId());
+                return true;
+            });
+        }
+    }
+
+    @Test
+    public void patientListFling() {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        Context context = new ContextThemeWrapper(instrumentation.getTargetContext(), R.style.Theme_SihAsha);
+        List<Patient> patients = syntheticPatients();
+
+        long[] legacy = new long[FRAMES];
+        long[] current = new long[FRAMES];
+        instrumentation.runOnMainSync(() -> fling(context, new LegacyBindPatientAdapter(patients, null), legacy));
+        instrumentation.runOnMainSync(() -> fling(context, new PatientAdapter(patients, null), current));
+
+        report("legacy bind", legacy);
+        report("current bind", current);
+    }
+
+    private static void fling(Context context, PatientAdapter adapter, long[] frameNs) {
+        RecyclerView recycler = new RecyclerView(context);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(context);
+        recycler.setLayoutManager(layoutManager);
+        recycler.setAdapter(adapter);
+        recycler.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(2200, View.MeasureSpec.EXACTLY));
+        recycler.layout(0, 0, 1080, 2200);
+
+        for (int i = 0; i < WARMUP_FRAMES; i++) recycler.scrollBy(0, PX_PER_FRAME);
+        for (int i = 0; i < frameNs.length; i++) {
+            long start = System.nanoTime();
+            recycler.scrollBy(0, PX_PER_FRAME);
+            frameNs[i] = System.nanoTime() - start;
+        }
+        assertTrue("List did not scroll", layoutManager.findFirstVisibleItemPosition() > 0);
+    }
+
+    private static void report(String label, long[] frameNs) {
+        long[] sorted = frameNs.clone();
+        Arrays.sort(sorted);
+        int janky = 0;
+        for (long ns : frameNs) {
+            if (ns > FRAME_BUDGET_NS) janky++;
+        }
+        Log.i(TAG, String.format("%s: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms, %d/%d over budget",
+                label, ms(sorted[sorted.length / 2]), ms(sorted[sorted.length * 9 / 10]),
+                ms(sorted[sorted.length * 99 / 100]), ms(sorted[sorted.length - 1]), janky, frameNs.length));
+    }
+
+    private static double ms(long ns) {
+        return ns / 1_000_000.0;
+    }
+
+    private static List<Patient> syntheticPatients() {
+        String[] villages = {"Rampur", "Sitapur", "Bhagalpur", "Chandpur", "Madhopur"};
+        List<Patient> patients = new ArrayList<>(PATIENTS);
+        for (int i = 0; i < PATIENTS; i++) {
+            Patient p = new Patient();
+            p.setId("PAT" + i);
+            p.setName("Patient " + i);
+            p.setAge(18 + i % 25);
+            p.setVillage(villages[i % villages.length]);
+            p.setPhoneNumber("98" + (10000000 + i));
+            patients.add(p);
+        }
+        return patients;
+    }
+}
@@ -0,0 +1,228 @@
+package com.macrovision.sihasha.utils;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.macrovision.sihasha.models.Patient;
+import com.macrovision.sihasha.models.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * DataManager against real files, without Firebase. Each test gets its own files
+ * directory and preferences, so the app's data on the device is left alone.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DataManagerTest {
+
+    private static final long TIMEOUT_MS = 30_000;
+
+    // Redirects files and preferences into a scratch directory
+    private static class ScratchContext extends ContextWrapper {
+        private final File filesDir;
+        private final String prefsPrefix;
+
+        ScratchContext(Context base, File filesDir) {
+            super(base);
+            this.filesDir = filesDir;
+            this.prefsPrefix = filesDir.getName() + "_";
+        }
+
+        @Override public Context getApplicationContext() { return this; }
+        @Override public File getFilesDir() { return filesDir; }
+
+        @Override
+        public SharedPreferences getSharedPreferences(String name, int mode) {
+            return super.getSharedPreferences(prefsPrefix + name, mode);
+        }
+    }
+
+    private Context context;
+    private DataManager dataManager;
+
+    @Before
+    public void setUp() throws Exception {
+        Context target = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File dir = new File(target.getCacheDir(), "datamanager-test-" + System.nanoTime());
+        assertTrue(dir.mkdirs());
+        context = new ScratchContext(target, dir);
+        dataManager = open();
+    }
+
+    @After
+    public void tearDown() {
+        File dir = context.getFilesDir();
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    private DataManager open() throws InterruptedException {
+        DataManager manager = new DataManager(context, null);
+        CountDownLatch ready = new CountDownLatch(1);
+        manager.whenReady(ready::countDown);
+        assertTrue("load timed out", ready.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        return manager;
+    }
+
+    private static Patient patient(String id, String ashaId) {
+        Patient p = new Patient();
+        p.setId(id);
+        p.setName("Patient " + id);
+        p.setAshaId(ashaId);
+        p.setVillage("Village " + (id.hashCode() & 7));
+        return p;
+    }
+
+    private static User user(String id, String name) {
+        User u = new User();
+        u.setId(id);
+        u.setName(name);
+        u.setRole("asha");
+        return u;
+    }
+
+    // Edits that race the cold-start load wait for it, so their result is the real one
+    @Test
+    public void editsBeforeLoadFinishes_reportWhatActuallyHappened() throws Exception {
+        assertTrue(dataManager.addPatient(patient("P1", "asha0")));
+        assertTrue(dataManager.flushAndWait(TIMEOUT_MS));
+
+        DataManager cold = new DataManager(context, null); // don't wait for whenReady
+        Patient missing = patient("P2", "asha0");
+        assertFalse(cold.updatePatient(missing));
+        assertNull(cold.getPatientById("P2"));
+        Patient edited = patient("P1", "asha0");
+        edited.setHighRisk(true);
+        assertTrue(cold.updatePatient(edited));
+        assertTrue(cold.getPatientById("P1").isHighRisk());
+        assertTrue(cold.isReady());
+    }
+
+    // Mutators hold a stripe lock while marking a collection dirty, and flushes
+    // snapshot under those same locks: any lock-order cycle shows up here as a hang
+    @Test
+    public void concurrentEditsReadsAndFlushes_finishAndPersistEverything() throws Exception {
+        final int patientsPerWriter = 300;
+        final int userRounds = 100;
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        CountDownLatch editorsDone = new CountDownLatch(3);
+
+        for (int w = 0; w < 2; w++) {
+            final String ashaId = "asha" + w;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < patientsPerWriter; i++) {
+                        Patient p = patient(ashaId + "-" + i, ashaId);
+                        assertTrue(dataManager.addPatient(p));
+                        if (i % 3 == 0) {
+                            Patient edited = patient(p.getId(), ashaId);
+                            edited.setHighRisk(true);
+                            assertTrue(dataManager.updatePatient(edited));
+                        }
+                    }
+                } finally {
+                    editorsDone.countDown();
+                }
+            }, "writer-" + w));
+        }
+        threads.add(new Thread(() -> {
+            try {
+                for (int round = 0; round < userRounds; round++) {
+                    List<User> fromFirebase = new ArrayList<>();
+                    for (int i = 0; i < 20; i++) fromFirebase.add(user("u" + i, "User " + i + " v" + round));
+                    dataManager.mergeUsers(fromFirebase);
+                }
+            } finally {
+                editorsDone.countDown();
+            }
+        }, "users"));
+        threads.add(new Thread(() -> {
+            while (editorsDone.getCount() > 0) {
+                dataManager.getPatientsForASHA("asha0");
+                dataManager.searchPatients("village");
+                dataManager.getDashboardCounters(null);
+                dataManager.getStaffList();
+            }
+        }, "reader"));
+        threads.add(new Thread(() -> {
+            while (editorsDone.getCount() > 0) dataManager.flushPendingWrites();
+        }, "flusher"));
+
+        for (Thread t : threads) {
+            t.setUncaughtExceptionHandler((thread, e) -> {
+                synchronized (failures) { failures.add(e); }
+            });
+            t.start();
+        }
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        for (Thread t : threads) {
+            t.join(Math.max(1, deadline - System.currentTimeMillis()));
+            assertFalse(t.getName() + " is stuck", t.isAlive());
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertTrue(dataManager.flushAndWait(TIMEOUT_MS));
+
+        assertEquals(2 * patientsPerWriter, dataManager.getAllPatients().size());
+        assertEquals(patientsPerWriter / 3, dataManager.getHighRiskPatientsForASHA("asha1").size());
+
+        DataManager reopened = open();
+        assertEquals(2 * patientsPerWriter, reopened.getAllPatients().size());
+        assertEquals(patientsPerWriter / 3, reopened.getHighRiskPatientsForASHA("asha0").size());
+        assertEquals(20, reopened.getAllUsers().size());
+        assertEquals("User 7 v" + (userRounds - 1), reopened.getUserById("u7").getName());
+    }
+
+    // Edit screens change the object getPatientById returned and pass it back
+    @Test
+    public void updatePatient_editedInPlace_reportsTheOldValuesAsBefore() throws Exception {
+        Patient p = patient("P1", "asha0");
+        p.setPhoneNumber("9000000000");
+        assertTrue(dataManager.addPatient(p));
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync(); // deliver the insert
+
+        List<ChangeSet<Patient>> delivered = new CopyOnWriteArrayList<>();
+        DataManager.OnDataChangedListener listener = new DataManager.OnDataChangedListener() {
+            @Override
+            public void onPatientsChanged(ChangeSet<Patient> changes) {
+                delivered.add(changes);
+            }
+        };
+        dataManager.addDataListener(listener);
+        try {
+            Patient stored = dataManager.getPatientById("P1");
+            stored.setPhoneNumber("9111111111");
+            stored.setHighRisk(true);
+            assertTrue(dataManager.updatePatient(stored));
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        } finally {
+            dataManager.removeDataListener(listener);
+        }
+
+        assertEquals(1, delivered.size());
+        ChangeSet.Update<Patient> update = delivered.get(0).getUpdated().get(0);
+        assertNotSame(update.before, update.after);
+        assertEquals("9000000000", update.before.getPhoneNumber());
+        assertFalse(update.before.isHighRisk());
+        assertEquals("9111111111", update.after.getPhoneNumber());
+        assertTrue(update.after.isHighRisk());
+        assertTrue(update.before.getVersion() < update.after.getVersion());
+    }
+}
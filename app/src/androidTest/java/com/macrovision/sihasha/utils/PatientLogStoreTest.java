@@ -0,0 +1,68 @@
+package com.macrovision.sihasha.utils;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.gson.Gson;
+import com.macrovision.sihasha.models.Patient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * PatientLogStore against a real file in the app's cache directory.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PatientLogStoreTest {
+
+    private File logFile;
+
+    @Before
+    public void setUp() {
+        File cache = InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir();
+        logFile = new File(cache, "patients-test-" + System.nanoTime() + ".log");
+    }
+
+    @After
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    private PatientLogStore open() {
+        return new PatientLogStore(logFile, new Gson(), BinaryModelCodecs.PATIENT);
+    }
+
+    private static Patient patient(String id, String village) {
+        Patient p = new Patient();
+        p.setId(id);
+        p.setName("Patient " + id);
+        p.setVillage(village);
+        return p;
+    }
+
+    // The first append after the file vanished starts a new file with its own dictionary,
+    // so the frame must not refer to strings only the old file defined
+    @Test
+    public void appendAfterTheFileWasDeleted_isReadableOnReload() {
+        PatientLogStore store = open();
+        store.loadAll();
+        assertTrue(store.put(patient("P1", "Rampur")));
+
+        store = open();
+        assertEquals(1, store.loadAll().size());
+        assertTrue(logFile.delete());
+        assertTrue(store.put(patient("P2", "Rampur")));
+
+        List<Patient> reloaded = open().loadAll();
+        assertEquals(1, reloaded.size());
+        assertEquals("P2", reloaded.get(0).getId());
+        assertEquals("Rampur", reloaded.get(0).getVillage());
+    }
+}
@@ -0,0 +1,99 @@
+package com.macrovision.sihasha.utils;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.macrovision.sihasha.models.Patient;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Time per full-snapshot resync of 10,000 unchanged patients, through PatientMerger and
+ * through a copy of the old merge, which rebuilt the list and every index (and then
+ * rewrote every record to disk, which is not timed here). Both include building the
+ * server copy, and are reported as instrumentation status and to logcat under
+ * "PatientMergerBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class PatientMergerBenchmark {
+    private static final String TAG = "PatientMergerBenchmark";
+
+    private static final int PATIENTS = 10_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 20;
+
+    @Test
+    public void resyncAt10k() {
+        KeyedList<Patient> patients = new KeyedList<>(Patient::getId);
+        PatientMerger merger = new PatientMerger(patients, new PatientVersions("device-A"));
+        merger.merge(serverCopy(), true);
+
+        long mergeNs = time(() -> assertTrue(merger.merge(serverCopy(), true).changes.isEmpty()));
+        List<Patient> legacyList = new ArrayList<>(patients.snapshot());
+        long legacyNs = time(() -> legacyMerge(legacyList, serverCopy()));
+        assertEquals(PATIENTS, legacyList.size());
+
+        report("merge engine", mergeNs);
+        report("old merge + index rebuild", legacyNs);
+    }
+
+    // What mergePatients did before: overlay everything on a map, rebuild the list,
+    // then rebuild every index from it
+    private static void legacyMerge(List<Patient> list, List<Patient> firebasePatients) {
+        Map<String, Patient> merged = new HashMap<>();
+        for (Patient p : list) merged.put(p.getId(), p);
+        for (Patient p : firebasePatients) merged.put(p.getId(), p);
+        list.clear();
+        list.addAll(merged.values());
+        new PatientIndex().rebuild(list);
+        new PatientSearchIndex().rebuild(list);
+        new PatientCounters().rebuild(list);
+        new PatientVersions("device-A").rebuild(list);
+    }
+
+    private static long time(Runnable round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) round.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) round.run();
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private static void report(String label, long ns) {
+        String line = String.format("10k resync, %s: %.3f ms per round", label, ns / 1_000_000.0);
+        Log.i(TAG, line);
+        Bundle status = new Bundle();
+        status.putString(TAG, line);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+
+    // What Firebase hands back on every sync: fresh objects for every record
+    private static List<Patient> serverCopy() {
+        List<Patient> copy = new ArrayList<>(PATIENTS);
+        for (int i = 0; i < PATIENTS; i++) {
+            Patient p = new Patient();
+            p.setId("P" + i);
+            p.setName("Patient " + i);
+            p.setAge(20 + i % 20);
+            p.setVillage("Village " + i % 50);
+            p.setAshaId("ASHA" + i % 40);
+            p.setPhoneNumber("98" + (10_000_000 + i));
+            p.setPregnancyStatus("pregnant");
+            p.setRiskFactors(new String[]{"anemia", "age"});
+            p.setHighRisk(i % 7 == 0);
+            copy.add(p);
+        }
+        return copy;
+    }
+}
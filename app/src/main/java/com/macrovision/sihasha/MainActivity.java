@@ -133,6 +133,8 @@ public class MainActivity extends AppCompatActivity {
                 
                 prefsManager.setCurrentUser(user);
                 prefsManager.setLoggedIn(true);
+                // Download only the patients this user may see
+                dataManager.whenReady(() -> dataManager.setSyncUser(user));
                 
                 navigateToDashboard();
             }
@@ -72,7 +72,9 @@ public class AddInventoryActivity extends AppCompatActivity {
 
         // Load item data if in edit mode
         if (isEditMode) {
-            loadItemData();
+            dataManager.whenReady(() -> {
+                if (!isFinishing()) loadItemData();
+            });
         }
     }
 
@@ -87,7 +87,9 @@ public class AddPatientActivity extends AppCompatActivity {
 
         // Load patient data if in edit mode
         if (isEditMode) {
-            loadPatientData();
+            dataManager.whenReady(() -> {
+                if (!isFinishing()) loadPatientData();
+            });
         }
     }
 
@@ -35,6 +35,7 @@ import com.macrovision.sihasha.fragments.InventoryFragment;
 import com.macrovision.sihasha.fragments.PatientListFragment;
 import com.macrovision.sihasha.fragments.StaffManagementFragment;
 import com.macrovision.sihasha.models.User;
+import com.macrovision.sihasha.utils.DashboardCounters;
 import com.macrovision.sihasha.utils.DataManager;
 import com.macrovision.sihasha.utils.SharedPrefsManager;
 
@@ -53,6 +54,10 @@ public class activity_dashboard extends AppCompatActivity {
 
     // Navigation state
     private String currentView = "dashboard";
+    // Refreshes the stats grid whenever DataManager's counters move while it is showing
+    private final DataManager.OnCountersChangedListener countersListener = () -> {
+        if ("dashboard".equals(currentView) && dataManager.isReady()) loadDashboardData();
+    };
     private Button currentSelectedTab = null;
 
     // Data Management
@@ -81,7 +86,7 @@ public class activity_dashboard extends AppCompatActivity {
         loadUserData();
         setupNavigationTabs();
         setupStatsGrid();
-        loadDashboardData();
+        dataManager.whenReady(this::loadDashboardData);
     }
 
     private void enableEdgeToEdge() {
@@ -590,45 +595,46 @@ public class activity_dashboard extends AppCompatActivity {
         }
     }
 
+    // Reads DataManager's live counters; nothing here scans or copies a list
     private void loadDashboardData() {
         try {
             Log.d(TAG, "Loading dashboard data for role: " + currentUser.getRole());
 
-            int patientCount = dataManager.getPatientCountForUser(currentUser);
+            DashboardCounters counters = dataManager.getDashboardCounters(currentUser);
+            int patientCount = counters.getTotal();
             tvPatientCount.setText(String.valueOf(patientCount));
 
             switch (currentUser.getRole()) {
                 case "asha":
                     updateStatsValue("patients", patientCount);
-                    updateStatsValue("high_risk", 
-                        dataManager.getHighRiskPatientsForASHA(currentUser.getId()).size());
+                    updateStatsValue("high_risk", counters.getHighRisk());
                     break;
 
                 case "phcdoctor":
-                    int highRiskCount = dataManager.getHighRiskPatients().size();
+                    int highRiskCount = counters.getAll().getHighRisk();
                     updateStatsValue("high_risk", highRiskCount);
                     
                     int referralCount = dataManager.getPendingReferrals() != null ? 
                                         dataManager.getPendingReferrals().size() : 0;
                     updateStatsValue("referrals", referralCount);
                     
-                    updateStatsValue("inventory_monitor", dataManager.getLowStockItems().size());
-                    updateStatsValue("asha_supervision", dataManager.getASHAWorkers().size());
+                    updateStatsValue("inventory_monitor", counters.getLowStockItems());
+                    updateStatsValue("asha_supervision", counters.getAshaWorkers());
                     
                     tvPatientCount.setText(String.valueOf(highRiskCount));
                     tvPatientCount.setTextColor(getColor(R.color.color_error));
                     break;
 
                 case "phcadmin":
-                    updateStatsValue("patients", dataManager.getAllPatients().size());
-                    updateStatsValue("staff", dataManager.getStaffList().size());
-                    updateStatsValue("inventory", dataManager.getAllInventoryItems().size());
-                    tvPatientCount.setText(String.valueOf(dataManager.getAllPatients().size()));
+                    updateStatsValue("patients", counters.getAll().getTotal());
+                    updateStatsValue("staff", counters.getStaff());
+                    updateStatsValue("inventory", counters.getInventoryItems());
+                    tvPatientCount.setText(String.valueOf(counters.getAll().getTotal()));
                     break;
 
                 default:
                     updateStatsValue("patients", patientCount);
-                    updateStatsValue("inventory", dataManager.getAllInventoryItems().size());
+                    updateStatsValue("inventory", counters.getInventoryItems());
                     break;
             }
 
@@ -662,6 +668,7 @@ public class activity_dashboard extends AppCompatActivity {
                 .setMessage("Are you sure you want to logout?")
                 .setPositiveButton("Logout", (dialog, which) -> {
                     prefsManager.logout();
+                    dataManager.whenReady(() -> dataManager.setSyncUser(null));
                     finish();
                     startActivity(new Intent(this, MainActivity.class));
                 })
@@ -682,7 +689,14 @@ public class activity_dashboard extends AppCompatActivity {
     protected void onResume() {
         super.onResume();
         if ("dashboard".equals(currentView)) {
-            loadDashboardData();
+            dataManager.whenReady(this::loadDashboardData);
         }
+        dataManager.addCountersListener(countersListener);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        dataManager.removeCountersListener(countersListener);
     }
 }
\ No newline at end of file
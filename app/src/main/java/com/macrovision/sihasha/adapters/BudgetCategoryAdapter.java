@@ -1,9 +1,6 @@
 package com.macrovision.sihasha.adapters;
 
-import static androidx.constraintlayout.widget.Constraints.TAG;
-
 import android.content.res.ColorStateList;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,12 +11,14 @@ import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 import com.macrovision.sihasha.R;
 import com.macrovision.sihasha.models.FinancialData;
+import com.macrovision.sihasha.utils.DebugLog;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
-public class BudgetCategoryAdapter extends RecyclerView.Adapter<BudgetCategoryAdapter.ViewHolder> {
+public class BudgetCategoryAdapter extends SnapshotListAdapter<FinancialData.CategoryBudget, BudgetCategoryAdapter.ViewHolder> {
 
-    private List<FinancialData.CategoryBudget> categories;
+    private static final String TAG = "BudgetCategoryAdapter";
     private OnBudgetCategoryClickListener listener;
 
     public interface OnBudgetCategoryClickListener {
@@ -28,15 +27,21 @@ public class BudgetCategoryAdapter extends RecyclerView.Adapter<BudgetCategoryAd
     }
 
     public BudgetCategoryAdapter(List<FinancialData.CategoryBudget> categories, OnBudgetCategoryClickListener listener) {
-        this.categories = categories;
         this.listener = listener;
+        submitList(categories);
+        if (DebugLog.ENABLED) DebugLog.d(TAG, "Adapter created with " + categories.size() + " categories");
+    }
 
-        Log.d(TAG, "Adapter created with " + categories.size() + " categories");
-        for (int i = 0; i < categories.size(); i++) {
-            Log.d(TAG, "Category " + i + ": " + categories.get(i).getCategoryName());
-        }
-
+    // Category names are unique within a budget
+    @Override
+    protected String keyOf(FinancialData.CategoryBudget category) {
+        return category.getCategoryName();
+    }
 
+    @Override
+    protected Object contentOf(FinancialData.CategoryBudget category) {
+        return Arrays.asList(category.getCategoryName(), category.getPercentage(), category.getAllocated(),
+                category.getSpent(), category.getRemaining(), category.getDescription());
     }
 
     @NonNull
@@ -44,21 +49,12 @@ public class BudgetCategoryAdapter extends RecyclerView.Adapter<BudgetCategoryAd
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_budget_category, parent, false);
-        return new ViewHolder(view);
+        return new ViewHolder(view, listener);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        FinancialData.CategoryBudget category = categories.get(position);
-        holder.bind(category, listener);
-    }
-
-    @Override
-    public int getItemCount() {
-        int count = categories.size();
-        Log.d(TAG, "getItemCount() returning: " + count); // ✅ ADD DEBUG LOG
-        return count;
-
+        holder.bind(getItem(position));
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
@@ -66,8 +62,12 @@ public class BudgetCategoryAdapter extends RecyclerView.Adapter<BudgetCategoryAd
         private TextView tvAllocatedAmount, tvSpentAmount, tvRemainingAmount;
         private TextView tvCategoryDescription;
         private ProgressBar progressCategory;
+        // Resolved once per holder instead of on every bind
+        private final ColorStateList errorTint, warningTint, successTint;
+        // Category currently bound here; the click listeners are set once and read it
+        private FinancialData.CategoryBudget category;
 
-        public ViewHolder(@NonNull View itemView) {
+        public ViewHolder(@NonNull View itemView, OnBudgetCategoryClickListener listener) {
             super(itemView);
             tvCategoryName = itemView.findViewById(R.id.tv_category_name);
             tvCategoryPercentage = itemView.findViewById(R.id.tv_category_percentage);
@@ -76,9 +76,22 @@ public class BudgetCategoryAdapter extends RecyclerView.Adapter<BudgetCategoryAd
             tvRemainingAmount = itemView.findViewById(R.id.tv_remaining_amount);
             tvCategoryDescription = itemView.findViewById(R.id.tv_category_description);
             progressCategory = itemView.findViewById(R.id.progress_category);
+
+            errorTint = ColorStateList.valueOf(ContextCompat.getColor(itemView.getContext(), R.color.color_error));
+            warningTint = ColorStateList.valueOf(ContextCompat.getColor(itemView.getContext(), R.color.color_warning));
+            successTint = ColorStateList.valueOf(ContextCompat.getColor(itemView.getContext(), R.color.color_success));
+
+            itemView.setOnClickListener(v -> {
+                if (listener != null && category != null) listener.onBudgetCategoryClick(category);
+            });
+            itemView.setOnLongClickListener(v -> {
+                if (listener != null && category != null) listener.onBudgetCategoryLongClick(category);
+                return true;
+            });
         }
 
-        public void bind(FinancialData.CategoryBudget category, OnBudgetCategoryClickListener listener) {
+        public void bind(FinancialData.CategoryBudget category) {
+            this.category = category;
             tvCategoryName.setText(category.getCategoryName());
             tvCategoryPercentage.setText(String.format(Locale.getDefault(), "%.0f%%", category.getPercentage()));
 
@@ -92,29 +105,15 @@ public class BudgetCategoryAdapter extends RecyclerView.Adapter<BudgetCategoryAd
             progressCategory.setProgress(progress);
 
             // Set progress bar color based on utilization
-            int progressColor;
+            ColorStateList progressTint;
             if (progress >= 90) {
-                progressColor = ContextCompat.getColor(itemView.getContext(), R.color.color_error);
+                progressTint = errorTint;
             } else if (progress >= 70) {
-                progressColor = ContextCompat.getColor(itemView.getContext(), R.color.color_warning);
+                progressTint = warningTint;
             } else {
-                progressColor = ContextCompat.getColor(itemView.getContext(), R.color.color_success);
+                progressTint = successTint;
             }
-            progressCategory.setProgressTintList(ColorStateList.valueOf(progressColor));
-
-            // Set click listeners
-            itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onBudgetCategoryClick(category);
-                }
-            });
-
-            itemView.setOnLongClickListener(v -> {
-                if (listener != null) {
-                    listener.onBudgetCategoryLongClick(category);
-                }
-                return true;
-            });
+            progressCategory.setProgressTintList(progressTint);
         }
 
         private String formatCurrency(double amount) {
@@ -1,5 +1,6 @@
 package com.macrovision.sihasha.adapters;
 
+import android.content.res.ColorStateList;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,11 +11,11 @@ import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 import com.macrovision.sihasha.R;
 import com.macrovision.sihasha.models.InventoryItem;
+import java.util.Arrays;
 import java.util.List;
 
-public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.ViewHolder> {
+public class InventoryAdapter extends SnapshotListAdapter<InventoryItem, InventoryAdapter.ViewHolder> {
 
-    private List<InventoryItem> items;
     private OnInventoryClickListener listener;
 
     public interface OnInventoryClickListener {
@@ -23,8 +24,19 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.View
     }
 
     public InventoryAdapter(List<InventoryItem> items, OnInventoryClickListener listener) {
-        this.items = items;
         this.listener = listener;
+        submitList(items);
+    }
+
+    @Override
+    protected String keyOf(InventoryItem item) {
+        return item.getId();
+    }
+
+    @Override
+    protected Object contentOf(InventoryItem item) {
+        return Arrays.asList(item.getName(), item.getCategory(), item.getCurrentStock(), item.getMinimumStock(),
+                item.getExpiryDate(), item.getBatchNumber(), item.getSupplier());
     }
 
     @NonNull
@@ -32,26 +44,25 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.View
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_inventory_card, parent, false);
-        return new ViewHolder(view);
+        return new ViewHolder(view, listener);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        InventoryItem item = items.get(position);
-        holder.bind(item, listener);
-    }
-
-    @Override
-    public int getItemCount() {
-        return items.size();
+        holder.bind(getItem(position));
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private TextView tvItemName, tvItemCategory, tvCurrentStock, tvMinimumStock;
         private TextView tvExpiryDate, tvBatchNumber, tvSupplier, tvStockStatus;
         private ProgressBar progressStockLevel;
+        // Resolved once per holder instead of on every bind
+        private final int errorColor, warningColor, successColor;
+        private final ColorStateList errorTint, successTint;
+        // Item currently bound here; the click listeners are set once and read it
+        private InventoryItem item;
 
-        public ViewHolder(@NonNull View itemView) {
+        public ViewHolder(@NonNull View itemView, OnInventoryClickListener listener) {
             super(itemView);
             tvItemName = itemView.findViewById(R.id.tv_item_name);
             tvItemCategory = itemView.findViewById(R.id.tv_item_category);
@@ -62,9 +73,24 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.View
             tvSupplier = itemView.findViewById(R.id.tv_supplier);
             tvStockStatus = itemView.findViewById(R.id.tv_stock_status);
             progressStockLevel = itemView.findViewById(R.id.progress_stock_level);
+
+            errorColor = ContextCompat.getColor(itemView.getContext(), R.color.color_error);
+            warningColor = ContextCompat.getColor(itemView.getContext(), R.color.color_warning);
+            successColor = ContextCompat.getColor(itemView.getContext(), R.color.color_success);
+            errorTint = ContextCompat.getColorStateList(itemView.getContext(), R.color.color_error);
+            successTint = ContextCompat.getColorStateList(itemView.getContext(), R.color.color_success);
+
+            itemView.setOnClickListener(v -> {
+                if (listener != null && item != null) listener.onInventoryItemClick(item);
+            });
+            itemView.setOnLongClickListener(v -> {
+                if (listener != null && item != null) listener.onInventoryItemLongClick(item);
+                return true;
+            });
         }
 
-        public void bind(InventoryItem item, OnInventoryClickListener listener) {
+        public void bind(InventoryItem item) {
+            this.item = item;
             tvItemName.setText(item.getName());
             tvItemCategory.setText(item.getCategory());
             tvCurrentStock.setText(String.valueOf(item.getCurrentStock()));
@@ -80,11 +106,11 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.View
             // Set stock status color
             int statusColor;
             if (item.isOutOfStock()) {
-                statusColor = ContextCompat.getColor(itemView.getContext(), R.color.color_error);
+                statusColor = errorColor;
             } else if (item.isLowStock()) {
-                statusColor = ContextCompat.getColor(itemView.getContext(), R.color.color_warning);
+                statusColor = warningColor;
             } else {
-                statusColor = ContextCompat.getColor(itemView.getContext(), R.color.color_success);
+                statusColor = successColor;
             }
             tvStockStatus.setTextColor(statusColor);
 
@@ -94,23 +120,7 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.View
             stockPercentage = Math.min(100, Math.max(0, stockPercentage));
 
             progressStockLevel.setProgress(stockPercentage);
-            progressStockLevel.setProgressTintList(
-                    ContextCompat.getColorStateList(itemView.getContext(),
-                            item.isLowStock() ? R.color.color_error : R.color.color_success));
-
-            // Set click listeners
-            itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onInventoryItemClick(item);
-                }
-            });
-
-            itemView.setOnLongClickListener(v -> {
-                if (listener != null) {
-                    listener.onInventoryItemLongClick(item);
-                }
-                return true;
-            });
+            progressStockLevel.setProgressTintList(item.isLowStock() ? errorTint : successTint);
         }
     }
 }
\ No newline at end of file
@@ -11,13 +11,15 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.macrovision.sihasha.R;
 import com.macrovision.sihasha.models.Patient;
+import com.macrovision.sihasha.utils.DebugLog;
 
+import java.util.Arrays;
 import java.util.List;
 
-public class PatientAdapter extends RecyclerView.Adapter<PatientAdapter.ViewHolder> {
+public class PatientAdapter extends SnapshotListAdapter<Patient, PatientAdapter.ViewHolder> {
 
     private static final String TAG = "PatientAdapter";
-    private List<Patient> patients;
+    private static final String[] AGE_LABELS = new String[121];
     private OnPatientClickListener listener;
 
     public interface OnPatientClickListener {
@@ -26,9 +28,19 @@ public class PatientAdapter extends RecyclerView.Adapter<PatientAdapter.ViewHold
     }
 
     public PatientAdapter(List<Patient> patients, OnPatientClickListener listener) {
-        this.patients = patients;
         this.listener = listener;
-        Log.d(TAG, "Adapter created with " + (patients != null ? patients.size() : 0) + " patients");
+        submitList(patients);
+        if (DebugLog.ENABLED) DebugLog.d(TAG, "Adapter created with " + (patients != null ? patients.size() : 0) + " patients");
+    }
+
+    @Override
+    protected String keyOf(Patient patient) {
+        return patient.getId();
+    }
+
+    @Override
+    protected Object contentOf(Patient patient) {
+        return Arrays.asList(patient.getName(), patient.getAge(), patient.getVillage(), patient.getPhoneNumber());
     }
 
     @NonNull
@@ -37,73 +49,54 @@ public class PatientAdapter extends RecyclerView.Adapter<PatientAdapter.ViewHold
         try {
             View view = LayoutInflater.from(parent.getContext())
                     .inflate(R.layout.activity_item_patient_card, parent, false);
-            return new ViewHolder(view);
+            return new ViewHolder(view, listener);
         } catch (Exception e) {
             Log.e(TAG, "Error creating view holder: " + e.getMessage(), e);
             throw e;
         }
     }
 
+    // Runs for every row scrolled into view: no logging, no listener or string allocation
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        try {
-            if (patients == null || position >= patients.size()) {
-                Log.e(TAG, "Invalid position or patients list");
-                return;
-            }
-            
-            Patient patient = patients.get(position);
-            if (patient == null) {
-                Log.e(TAG, "Patient is null at position " + position);
-                return;
-            }
-            
-            Log.d(TAG, "Binding patient at position " + position + ": " + patient.getName());
-            
-            holder.tvPatientName.setText(patient.getName() != null ? patient.getName() : "Unknown");
-            holder.tvPatientAge.setText(patient.getAge() + " years");
-            holder.tvPatientVillage.setText(patient.getVillage() != null ? patient.getVillage() : "N/A");
-            holder.tvPatientPhone.setText(patient.getPhoneNumber() != null ? patient.getPhoneNumber() : "N/A");
-            
-            // Handle item clicks
-            holder.itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onPatientClick(patient);
-                }
-            });
-            
-            holder.itemView.setOnLongClickListener(v -> {
-                if (listener != null) {
-                    listener.onPatientLongClick(patient);
-                }
-                return true;
-            });
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error binding view holder: " + e.getMessage(), e);
-        }
+        Patient patient = getItem(position);
+        holder.patient = patient;
+        holder.tvPatientName.setText(patient.getName() != null ? patient.getName() : "Unknown");
+        holder.tvPatientAge.setText(ageLabel(patient.getAge()));
+        holder.tvPatientVillage.setText(patient.getVillage() != null ? patient.getVillage() : "N/A");
+        holder.tvPatientPhone.setText(patient.getPhoneNumber() != null ? patient.getPhoneNumber() : "N/A");
     }
 
-    @Override
-    public int getItemCount() {
-        return patients != null ? patients.size() : 0;
+    // "N years" labels are built once per age and reused
+    private static String ageLabel(int age) {
+        if (age < 0 || age >= AGE_LABELS.length) return age + " years";
+        String label = AGE_LABELS[age];
+        if (label == null) {
+            label = age + " years";
+            AGE_LABELS[age] = label;
+        }
+        return label;
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvPatientName, tvPatientAge, tvPatientVillage, tvPatientPhone;
+        // Row currently bound here; the click listeners below are set once and read it
+        Patient patient;
 
-        public ViewHolder(@NonNull View itemView) {
+        public ViewHolder(@NonNull View itemView, OnPatientClickListener listener) {
             super(itemView);
-            try {
-                tvPatientName = itemView.findViewById(R.id.tv_patient_name);
-                tvPatientAge = itemView.findViewById(R.id.tv_patient_age);
-                tvPatientVillage = itemView.findViewById(R.id.tv_patient_village);
-                tvPatientPhone = itemView.findViewById(R.id.tv_patient_phone);
-                
-                Log.d(TAG, "View holder views initialized");
-            } catch (Exception e) {
-                Log.e(TAG, "Error initializing view holder: " + e.getMessage(), e);
-            }
+            tvPatientName = itemView.findViewById(R.id.tv_patient_name);
+            tvPatientAge = itemView.findViewById(R.id.tv_patient_age);
+            tvPatientVillage = itemView.findViewById(R.id.tv_patient_village);
+            tvPatientPhone = itemView.findViewById(R.id.tv_patient_phone);
+
+            itemView.setOnClickListener(v -> {
+                if (listener != null && patient != null) listener.onPatientClick(patient);
+            });
+            itemView.setOnLongClickListener(v -> {
+                if (listener != null && patient != null) listener.onPatientLongClick(patient);
+                return true;
+            });
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package com.macrovision.sihasha.adapters;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base adapter that diffs each new list against the last one on a background thread
+ * and only rebinds the rows that changed.
+ *
+ * Screens edit model objects in place, so comparing the objects themselves would find
+ * nothing changed. Instead every submitted item is captured as a Row holding its key
+ * and a snapshot of exactly what its ViewHolder displays; rows are the same item if
+ * their keys match and need rebinding only if their snapshots differ.
+ * Each key is given a stable item id for as long as the adapter lives.
+ */
+public abstract class SnapshotListAdapter<T, VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+
+    static final class Row<T> {
+        final T item;
+        final String key;
+        final Object content;
+
+        Row(T item, String key, Object content) {
+            this.item = item;
+            this.key = key;
+            this.content = content;
+        }
+    }
+
+    private final AsyncListDiffer<Row<T>> differ = new AsyncListDiffer<>(this, new DiffUtil.ItemCallback<Row<T>>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row<T> oldRow, @NonNull Row<T> newRow) {
+            return oldRow.key.equals(newRow.key);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row<T> oldRow, @NonNull Row<T> newRow) {
+            return oldRow.content.equals(newRow.content);
+        }
+    });
+
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId = 1;
+
+    protected SnapshotListAdapter() {
+        setHasStableIds(true);
+    }
+
+    // Identifies the item across lists, e.g. its database ID
+    protected abstract String keyOf(T item);
+
+    // Everything the row shows, as a value with equals(); a change here triggers a rebind
+    protected abstract Object contentOf(T item);
+
+    public void submitList(@Nullable List<T> items) {
+        submitList(items, null);
+    }
+
+    // The list is copied, so callers may keep reusing and mutating their own
+    public void submitList(@Nullable List<T> items, @Nullable Runnable commitCallback) {
+        List<Row<T>> rows = new ArrayList<>(items != null ? items.size() : 0);
+        if (items != null) {
+            for (int i = 0; i < items.size(); i++) {
+                T item = items.get(i);
+                if (item == null) continue;
+                String key = keyOf(item);
+                // Keyless items can only ever match themselves
+                rows.add(new Row<>(item, key != null ? key : "#" + System.identityHashCode(item), contentOf(item)));
+            }
+        }
+        differ.submitList(rows, commitCallback);
+    }
+
+    public T getItem(int position) {
+        return differ.getCurrentList().get(position).item;
+    }
+
+    public List<T> getCurrentList() {
+        List<Row<T>> rows = differ.getCurrentList();
+        List<T> items = new ArrayList<>(rows.size());
+        for (Row<T> row : rows) items.add(row.item);
+        return Collections.unmodifiableList(items);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String key = differ.getCurrentList().get(position).key;
+        Long id = stableIds.get(key);
+        if (id == null) {
+            id = nextStableId++;
+            stableIds.put(key, id);
+        }
+        return id;
+    }
+}
@@ -11,14 +11,23 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.macrovision.sihasha.R;
 import com.macrovision.sihasha.models.Staff;
 
+import java.util.Arrays;
 import java.util.List;
 
-public class StaffAdapter extends RecyclerView.Adapter<StaffAdapter.ViewHolder> {
-
-    private List<Staff> staffList;
+public class StaffAdapter extends SnapshotListAdapter<Staff, StaffAdapter.ViewHolder> {
 
     public StaffAdapter(List<Staff> staffList) {
-        this.staffList = staffList;
+        submitList(staffList);
+    }
+
+    @Override
+    protected String keyOf(Staff staff) {
+        return staff.getId();
+    }
+
+    @Override
+    protected Object contentOf(Staff staff) {
+        return Arrays.asList(staff.getName(), staff.getRole(), staff.getPhone(), staff.getVillage());
     }
 
     @NonNull
@@ -31,7 +40,7 @@ public class StaffAdapter extends RecyclerView.Adapter<StaffAdapter.ViewHolder>
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Staff staff = staffList.get(position);
+        Staff staff = getItem(position);
         
         holder.tvName.setText(staff.getName() != null ? staff.getName() : "Unknown");
         holder.tvRole.setText(formatRole(staff.getRole()));
@@ -50,11 +59,6 @@ public class StaffAdapter extends RecyclerView.Adapter<StaffAdapter.ViewHolder>
         }
     }
 
-    @Override
-    public int getItemCount() {
-        return staffList != null ? staffList.size() : 0;
-    }
-
     public static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvName, tvRole, tvPhone, tvLocation;
 
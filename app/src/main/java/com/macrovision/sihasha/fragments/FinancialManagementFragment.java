@@ -63,7 +63,9 @@ public class FinancialManagementFragment extends Fragment
             setupRecyclerView();
             setupEventListeners();
             currentUser = prefsManager.getCurrentUser();
-            loadFinancialData();
+            dataManager.whenReady(() -> {
+                if (isAdded()) loadFinancialData();
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error in onCreateView", e);
         }
@@ -158,7 +160,7 @@ public class FinancialManagementFragment extends Fragment
         if (financialData != null && financialData.getCategoryBudgets() != null) {
             categoryBudgets.addAll(financialData.getCategoryBudgets().values());
         }
-        if (budgetCategoryAdapter != null) budgetCategoryAdapter.notifyDataSetChanged();
+        if (budgetCategoryAdapter != null) budgetCategoryAdapter.submitList(categoryBudgets);
     }
 
     private String formatCurrency(double amount) {
@@ -88,7 +88,9 @@ public class InventoryFragment extends Fragment implements InventoryAdapter.OnIn
             setupEventListeners();
             setupFilterTabs();
             loadUserData();
-            loadInventory();
+            dataManager.whenReady(() -> {
+                if (isAdded()) loadInventory();
+            });
 
             Log.d(TAG, "Fragment setup completed successfully");
         } catch (Exception e) {
@@ -524,8 +526,8 @@ public class InventoryFragment extends Fragment implements InventoryAdapter.OnIn
                 Log.d(TAG, "Showing inventory list");
                 showInventoryList();
                 if (inventoryAdapter != null) {
-                    inventoryAdapter.notifyDataSetChanged();
-                    Log.d(TAG, "Adapter notified of data change");
+                    inventoryAdapter.submitList(filteredItems);
+                    Log.d(TAG, "Submitted " + filteredItems.size() + " items to adapter");
                 } else {
                     Log.e(TAG, "Inventory adapter is null!");
                 }
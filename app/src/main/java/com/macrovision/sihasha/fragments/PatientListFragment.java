@@ -35,16 +35,26 @@ import com.macrovision.sihasha.activities.AddPatientActivity;
 import com.macrovision.sihasha.adapters.PatientAdapter;
 import com.macrovision.sihasha.models.Patient;
 import com.macrovision.sihasha.models.User;
+import com.macrovision.sihasha.utils.ChangeSet;
 import com.macrovision.sihasha.utils.DataManager;
 import com.macrovision.sihasha.utils.SharedPrefsManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PatientListFragment extends Fragment implements PatientAdapter.OnPatientClickListener, DataManager.OnDataChangedListener {
 
+    private static final String TAG = "PatientListFragment";
+    // Wait for a pause in typing before searching
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+
     private RecyclerView recyclerPatients;
     private PatientAdapter patientAdapter;
     private EditText editPatientSearch;
@@ -68,6 +78,10 @@ public class PatientListFragment extends Fragment implements PatientAdapter.OnPa
     private String currentSortOption = "name";
 
     private final Handler mainHandler = new Handler();
+    private final Runnable searchTask = this::applyFiltersAndSort;
+    // Filtering and sorting run off the UI thread; a newer request makes older ones stale
+    private ExecutorService filterExecutor;
+    private final AtomicInteger filterGeneration = new AtomicInteger();
     private ActivityResultLauncher<Intent> addPatientLauncher;
 
     @Nullable
@@ -76,15 +90,18 @@ public class PatientListFragment extends Fragment implements PatientAdapter.OnPa
                              @Nullable ViewGroup container,
                              @Nullable Bundle savedInstanceState) {
 
-        // ✅ Register launcher FIRST before any setup
+        // ✅ Register launcher FIRST before any setup. Saved patients reach the list
+        // through onPatientsChanged, so there is nothing to reload on return.
         addPatientLauncher = registerForActivityResult(
                 new ActivityResultContracts.StartActivityForResult(),
                 result -> {
                     if (result.getResultCode() == Activity.RESULT_OK) {
-                        loadPatients();
+                        Log.d(TAG, "Patient saved");
                     }
                 });
 
+        filterExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "PatientList-filter"));
+
         View view = inflater.inflate(R.layout.fragment_patient_list, container, false);
         initializeComponents(view);
         setupRecyclerView();
@@ -92,29 +109,36 @@ public class PatientListFragment extends Fragment implements PatientAdapter.OnPa
         setupEventListeners();
         setupFilterTabs();
         loadUserData();
+        // Listen for the whole life of the view, so edits made on other screens patch the list
+        dataManager.addDataListener(this);
         loadPatients();
         return view;
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        if (dataManager != null) dataManager.addDataListener(this);
-    }
-
-    @Override
-    public void onPause() {
-        super.onPause();
+    public void onDestroyView() {
         if (dataManager != null) dataManager.removeDataListener(this);
+        mainHandler.removeCallbacks(searchTask);
+        filterGeneration.incrementAndGet();
+        if (filterExecutor != null) {
+            filterExecutor.shutdownNow();
+            filterExecutor = null;
+        }
+        super.onDestroyView();
     }
 
+    // Already on the main thread. Patches allPatients in place instead of reloading it;
+    // the adapter then rebinds only the rows that changed.
     @Override
-    public void onPatientsChanged() {
-        if (getActivity() != null) getActivity().runOnUiThread(this::loadPatients);
+    public void onPatientsChanged(ChangeSet<Patient> changes) {
+        if (!isAdded()) return;
+        changes.applyTo(allPatients, Patient::getId, this::belongsInList);
+        applyFiltersAndSort();
     }
 
-    @Override
-    public void onUsersChanged() {}
+    private boolean belongsInList(Patient patient) {
+        return dataManager.getSyncScope().matches(patient);
+    }
 
     private void initializeComponents(View view) {
         recyclerPatients    = view.findViewById(R.id.recycler_patients);
@@ -170,7 +194,8 @@ public class PatientListFragment extends Fragment implements PatientAdapter.OnPa
                 @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
                 @Override public void onTextChanged(CharSequence s, int start, int before, int count) {
                     currentSearchTerm = s.toString().toLowerCase().trim();
-                    applyFiltersAndSort();
+                    mainHandler.removeCallbacks(searchTask);
+                    mainHandler.postDelayed(searchTask, SEARCH_DEBOUNCE_MS);
                 }
                 @Override public void afterTextChanged(Editable s) {}
             });
@@ -244,42 +269,71 @@ public class PatientListFragment extends Fragment implements PatientAdapter.OnPa
 
     private void loadPatients() {
         showLoading(true);
-        mainHandler.postDelayed(() -> {
+        if (dataManager == null) {
+            showLoading(false);
+            return;
+        }
+        dataManager.whenReady(() -> {
+            if (!isAdded()) return;
             try {
                 allPatients.clear();
                 if (dataManager != null) {
-                    if (currentUser != null && "asha".equals(currentUser.getRole())) {
-                        allPatients.addAll(dataManager.getPatientsForASHA(currentUser.getId()));
-                    } else {
-                        allPatients.addAll(dataManager.getAllPatients());
-                    }
+                    // An ASHA's caseload, a doctor's or admin's PHC: whatever this device syncs
+                    allPatients.addAll(dataManager.getPatientsInSyncScope());
                 }
                 applyFiltersAndSort();
                 showLoading(false);
             } catch (Exception e) {
-                Log.e("PatientListFragment", "Error loading patients", e);
+                Log.e(TAG, "Error loading patients", e);
                 showError();
                 showLoading(false);
             }
-        }, 300);
+        });
     }
 
+    // Snapshots the list and filter state here, filters and sorts on filterExecutor,
+    // and only publishes the result if no newer request has been made since
     private void applyFiltersAndSort() {
-        filteredPatients.clear();
-        List<Patient> working = new ArrayList<>(allPatients);
-        working = applyCategoryFilter(working);
-        working = applyRiskFilter(working);
-        working = applySearchFilter(working);
-        working = applySorting(working);
-        filteredPatients.addAll(working);
-        updateUI();
-    }
-
-    private List<Patient> applyCategoryFilter(List<Patient> patients) {
-        if ("all".equals(currentFilter)) return patients;
+        mainHandler.removeCallbacks(searchTask);
+        if (filterExecutor == null) return;
+
+        final int generation = filterGeneration.incrementAndGet();
+        final List<Patient> snapshot = new ArrayList<>(allPatients);
+        final String category = currentFilter;
+        final String risk = currentRiskFilter;
+        final String term = currentSearchTerm;
+        final String sort = currentSortOption;
+
+        filterExecutor.execute(() -> {
+            try {
+                List<Patient> working = applyCategoryFilter(snapshot, category);
+                working = applyRiskFilter(working, risk);
+                working = applySearchFilter(working, term, generation);
+                if (working == null || isStale(generation)) return;
+                final List<Patient> result = applySorting(working, sort);
+                if (isStale(generation)) return;
+
+                mainHandler.post(() -> {
+                    if (isStale(generation) || !isAdded()) return;
+                    filteredPatients.clear();
+                    filteredPatients.addAll(result);
+                    updateUI();
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "Error filtering patients", e);
+            }
+        });
+    }
+
+    private boolean isStale(int generation) {
+        return generation != filterGeneration.get();
+    }
+
+    private static List<Patient> applyCategoryFilter(List<Patient> patients, String category) {
+        if ("all".equals(category)) return patients;
         List<Patient> out = new ArrayList<>();
         for (Patient p : patients) {
-            switch (currentFilter) {
+            switch (category) {
                 case "pregnant":  if ("pregnant".equals(p.getPregnancyStatus()))  out.add(p); break;
                 case "delivered": if ("delivered".equals(p.getPregnancyStatus())) out.add(p); break;
                 case "highrisk":
@@ -290,11 +344,11 @@ public class PatientListFragment extends Fragment implements PatientAdapter.OnPa
         return out;
     }
 
-    private List<Patient> applyRiskFilter(List<Patient> patients) {
-        if ("all".equals(currentRiskFilter)) return patients;
+    private static List<Patient> applyRiskFilter(List<Patient> patients, String risk) {
+        if ("all".equals(risk)) return patients;
         List<Patient> out = new ArrayList<>();
         for (Patient p : patients) {
-            switch (currentRiskFilter) {
+            switch (risk) {
                 case "high":   if (p.isHighRisk()) out.add(p); break;
                 case "medium": if (!p.isHighRisk() && p.getAge() > 35) out.add(p); break;
                 case "low":
@@ -304,24 +358,26 @@ public class PatientListFragment extends Fragment implements PatientAdapter.OnPa
         return out;
     }
 
-    private List<Patient> applySearchFilter(List<Patient> patients) {
-        if (currentSearchTerm.isEmpty()) return patients;
-        List<Patient> out = new ArrayList<>();
+    // Matches come from DataManager's search index; the snapshot keeps only those.
+    // Returns null if a newer query arrived part way through
+    private List<Patient> applySearchFilter(List<Patient> patients, String term, int generation) {
+        if (term.isEmpty()) return patients;
+        List<Patient> matches = dataManager.searchPatients(term);
+        if (isStale(generation)) return null;
+
+        Set<String> matchIds = new HashSet<>(matches.size() * 2);
+        for (Patient p : matches) matchIds.add(p.getId());
+        List<Patient> out = new ArrayList<>(Math.min(patients.size(), matches.size()));
         for (Patient p : patients) {
-            if ((p.getName() != null && p.getName().toLowerCase().contains(currentSearchTerm)) ||
-                (p.getVillage() != null && p.getVillage().toLowerCase().contains(currentSearchTerm)) ||
-                (p.getPhoneNumber() != null && p.getPhoneNumber().contains(currentSearchTerm)) ||
-                String.valueOf(p.getAge()).contains(currentSearchTerm)) {
-                out.add(p);
-            }
+            if (matchIds.contains(p.getId())) out.add(p);
         }
         return out;
     }
 
-    private List<Patient> applySorting(List<Patient> patients) {
+    private static List<Patient> applySorting(List<Patient> patients, String sort) {
         List<Patient> sorted = new ArrayList<>(patients);
         Collections.sort(sorted, (p1, p2) -> {
-            switch (currentSortOption) {
+            switch (sort) {
                 case "age":     return Integer.compare(p2.getAge(), p1.getAge());
                 case "date":    return compareStrings(p2.getRegistrationDate(), p1.getRegistrationDate());
                 case "risk":    return Boolean.compare(p2.isHighRisk(), p1.isHighRisk());
@@ -332,7 +388,7 @@ public class PatientListFragment extends Fragment implements PatientAdapter.OnPa
         return sorted;
     }
 
-    private int compareStrings(String s1, String s2) {
+    private static int compareStrings(String s1, String s2) {
         if (s1 == null && s2 == null) return 0;
         if (s1 == null) return 1;
         if (s2 == null) return -1;
@@ -366,7 +422,7 @@ public class PatientListFragment extends Fragment implements PatientAdapter.OnPa
         }
         if (filteredPatients.isEmpty()) showEmptyState();
         else showPatientList();
-        if (patientAdapter != null) patientAdapter.notifyDataSetChanged();
+        if (patientAdapter != null) patientAdapter.submitList(filteredPatients);
     }
 
     private void resetFilterTabStates() {
@@ -110,23 +110,21 @@ public class StaffManagementFragment extends Fragment {
     private void refreshFromFirebase() {
         if (dataManager == null) return;
         
-        // Force refresh users from Firebase
-        dataManager.refreshUsersFromFirebase();
-        
-        // Wait a moment for sync, then reload
-        new android.os.Handler().postDelayed(() -> {
-            if (getActivity() != null) {
-                getActivity().runOnUiThread(() -> {
-                    loadStaffData();
-                });
-            }
-        }, 1500);
+        // Reload as soon as the users are merged; served from the live sync when it is running
+        dataManager.whenReady(() -> dataManager.refreshUsersFromFirebase(() -> {
+            if (isAdded()) loadStaffData();
+        }));
     }
 
     private void loadStaffData() {
+        if (dataManager == null) return;
+        dataManager.whenReady(() -> {
+            if (isAdded()) showStaff();
+        });
+    }
+
+    private void showStaff() {
         try {
-            if (dataManager == null) return;
-            
             staffList.clear();
             
             // Get fresh staff list from DataManager
@@ -151,7 +149,7 @@ public class StaffManagementFragment extends Fragment {
                 if (tvNoData != null) tvNoData.setVisibility(View.GONE);
                 if (recyclerView != null) recyclerView.setVisibility(View.VISIBLE);
                 if (tvStaffCount != null) tvStaffCount.setText(staffList.size() + " staff members");
-                if (adapter != null) adapter.notifyDataSetChanged();
+                if (adapter != null) adapter.submitList(staffList);
             }
             
         } catch (Exception e) {
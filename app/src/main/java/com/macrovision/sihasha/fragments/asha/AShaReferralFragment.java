@@ -145,6 +145,12 @@ public class AShaReferralFragment extends Fragment implements PatientAdapter.OnP
             return;
         }
         
+        dataManager.whenReady(() -> {
+            if (isAdded()) showPatients();
+        });
+    }
+
+    private void showPatients() {
         try {
             Log.d(TAG, "Loading patients for ASHA: " + currentUser.getId());
             myPatients = dataManager.getPatientsForASHA(currentUser.getId());
@@ -199,7 +205,7 @@ public class AShaReferralFragment extends Fragment implements PatientAdapter.OnP
         } else {
             if (tvNoData != null) tvNoData.setVisibility(View.GONE);
             if (recyclerView != null) recyclerView.setVisibility(View.VISIBLE);
-            if (adapter != null) adapter.notifyDataSetChanged();
+            if (adapter != null) adapter.submitList(displayPatients);
         }
     }
 
@@ -17,10 +17,13 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.macrovision.sihasha.R;
 import com.macrovision.sihasha.models.User;
 import com.macrovision.sihasha.utils.DataManager;
+import com.macrovision.sihasha.utils.PatientAnalytics;
 import com.macrovision.sihasha.utils.SharedPrefsManager;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class DoctorAShaSupervisionFragment extends Fragment {
 
@@ -35,6 +38,8 @@ public class DoctorAShaSupervisionFragment extends Fragment {
 
     // ✅ FIX: Single list that adapter always references — never reassigned
     private final List<User> ashaWorkers = new ArrayList<>();
+    // Per-ASHA patient counts, fetched once per load and read by every bind
+    private Map<String, PatientAnalytics> countsByAsha = Collections.emptyMap();
 
     @Nullable
     @Override
@@ -45,7 +50,9 @@ public class DoctorAShaSupervisionFragment extends Fragment {
         initializeViews(view);
         setupDataManager();
         setupRecyclerView(); // Adapter created ONCE, pointing at ashaWorkers list
-        loadAShaData();      // Fills ashaWorkers and calls notifyDataSetChanged
+        dataManager.whenReady(() -> {
+            if (isAdded()) loadAShaData(); // Fills ashaWorkers and calls notifyDataSetChanged
+        });
         setupClickListeners();
 
         return view;
@@ -81,6 +88,7 @@ public class DoctorAShaSupervisionFragment extends Fragment {
         // ✅ FIX: Clear and refill the SAME list — don't reassign the variable
         ashaWorkers.clear();
         ashaWorkers.addAll(dataManager.getASHAWorkers());
+        countsByAsha = dataManager.getPatientCountsByAsha();
 
         int total = ashaWorkers.size();
         int active = total; // All registered = active for now
@@ -88,8 +96,9 @@ public class DoctorAShaSupervisionFragment extends Fragment {
         int highRisk = 0;
 
         for (User asha : ashaWorkers) {
-            totalPatients += dataManager.getPatientsForASHA(asha.getId()).size();
-            highRisk += dataManager.getHighRiskPatientsForASHA(asha.getId()).size();
+            PatientAnalytics counts = countsFor(asha);
+            totalPatients += counts.getTotal();
+            highRisk += counts.getHighRisk();
         }
 
         if (tvTotalASHA != null) tvTotalASHA.setText(String.valueOf(total));
@@ -102,6 +111,11 @@ public class DoctorAShaSupervisionFragment extends Fragment {
         if (adapter != null) adapter.notifyDataSetChanged();
     }
 
+    private PatientAnalytics countsFor(User asha) {
+        PatientAnalytics counts = asha.getId() != null ? countsByAsha.get(asha.getId()) : null;
+        return counts != null ? counts : PatientAnalytics.EMPTY;
+    }
+
     private class AShaAdapter extends RecyclerView.Adapter<AShaAdapter.ViewHolder> {
 
         private final List<User> ashaList;
@@ -121,8 +135,9 @@ public class DoctorAShaSupervisionFragment extends Fragment {
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
             User asha = ashaList.get(position);
-            int patientCount = dataManager.getPatientsForASHA(asha.getId()).size();
-            int highRiskCount = dataManager.getHighRiskPatientsForASHA(asha.getId()).size();
+            PatientAnalytics counts = countsFor(asha);
+            int patientCount = counts.getTotal();
+            int highRiskCount = counts.getHighRisk();
 
             if (holder.tvName != null) holder.tvName.setText(asha.getName());
             if (holder.tvVillage != null)
@@ -17,6 +17,7 @@ import com.macrovision.sihasha.R;
 import com.macrovision.sihasha.models.Patient;
 import com.macrovision.sihasha.models.User;
 import com.macrovision.sihasha.utils.DataManager;
+import com.macrovision.sihasha.utils.PatientAnalytics;
 import com.macrovision.sihasha.utils.SharedPrefsManager;
 
 import java.text.SimpleDateFormat;
@@ -34,6 +35,7 @@ public class DoctorHealthAnalyticsFragment extends Fragment {
     private SharedPrefsManager prefsManager;
     private User currentUser;
     private List<Patient> allPatients;
+    private PatientAnalytics analytics;
 
     @Nullable
     @Override
@@ -42,7 +44,9 @@ public class DoctorHealthAnalyticsFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_doctor_health_analytics, container, false);
         initializeViews(view);
         setupDataManager();
-        loadAnalyticsData();
+        dataManager.whenReady(() -> {
+            if (isAdded()) loadAnalyticsData();
+        });
         setupClickListeners();
         return view;
     }
@@ -76,80 +80,17 @@ public class DoctorHealthAnalyticsFragment extends Fragment {
 
     private void loadAnalyticsData() {
         allPatients = dataManager.getAllPatients();
+        analytics = PatientAnalytics.of(allPatients); // every counter below, in one pass
 
-        int total = allPatients.size();
-        int pregnant = 0, delivered = 0, highRisk = 0;
-
-        for (Patient p : allPatients) {
-            if ("pregnant".equals(p.getPregnancyStatus())) pregnant++;
-            else if ("delivered".equals(p.getPregnancyStatus())) delivered++;
-            if (p.isHighRisk()) highRisk++;
-        }
-
-        if (tvTotalPatients != null) tvTotalPatients.setText(String.valueOf(total));
-        if (tvPregnantCount != null) tvPregnantCount.setText(String.valueOf(pregnant));
-        if (tvDeliveredCount != null) tvDeliveredCount.setText(String.valueOf(delivered));
-        if (tvHighRiskCount != null) tvHighRiskCount.setText(String.valueOf(highRisk));
-
-        // Calculate percentages based on actual data
-        if (tvAncCompletion != null) {
-            // ANC completion rate = pregnant women with 4+ visits / total pregnant women
-            int pregnantWithAnc = 0;
-            for (Patient p : allPatients) {
-                if ("pregnant".equals(p.getPregnancyStatus()) && p.getPregnancyNumber() >= 4) {
-                    pregnantWithAnc++;
-                }
-            }
-            int ancRate = pregnant > 0 ? (pregnantWithAnc * 100 / pregnant) : 0;
-            tvAncCompletion.setText(ancRate + "%");
-        }
-
-        if (tvInstitutionalDelivery != null) {
-            // Institutional delivery rate = delivered in hospital / total delivered
-            int institutional = 0;
-            int totalDelivered = 0;
-            for (Patient p : allPatients) {
-                if ("delivered".equals(p.getPregnancyStatus())) {
-                    totalDelivered++;
-                    // Assuming hospital delivery if blood group is recorded (you can change this logic)
-                    if (p.getBloodGroup() != null && !p.getBloodGroup().isEmpty()) {
-                        institutional++;
-                    }
-                }
-            }
-            int deliveryRate = totalDelivered > 0 ? (institutional * 100 / totalDelivered) : 0;
-            tvInstitutionalDelivery.setText(deliveryRate + "%");
-        }
+        if (tvTotalPatients != null) tvTotalPatients.setText(String.valueOf(analytics.getTotal()));
+        if (tvPregnantCount != null) tvPregnantCount.setText(String.valueOf(analytics.getPregnant()));
+        if (tvDeliveredCount != null) tvDeliveredCount.setText(String.valueOf(analytics.getDelivered()));
+        if (tvHighRiskCount != null) tvHighRiskCount.setText(String.valueOf(analytics.getHighRisk()));
 
-        if (tvAnemiaRate != null) {
-            // Anemia rate = patients with low hemoglobin / total patients
-            int anemic = 0;
-            for (Patient p : allPatients) {
-                // Assuming anemia if patient is high risk (you can change this logic)
-                if (p.isHighRisk()) {
-                    anemic++;
-                }
-            }
-            int anemiaRate = total > 0 ? (anemic * 100 / total) : 0;
-            tvAnemiaRate.setText(anemiaRate + "%");
-        }
-
-        if (tvImmunizationRate != null) {
-            // Immunization rate = children immunized / total children
-            int immunized = 0;
-            int totalChildren = 0;
-            for (Patient p : allPatients) {
-                if (p.getAge() <= 5) {
-                    totalChildren++;
-                    // Assuming immunized if registered (you can change this logic)
-                    if (p.getRegistrationDate() != null) {
-                        immunized++;
-                    }
-                }
-            }
-            int immunizationRate = totalChildren > 0 ? (immunized * 100 / totalChildren) : 0;
-            tvImmunizationRate.setText(immunizationRate + "%");
-        }
+        if (tvAncCompletion != null) tvAncCompletion.setText(analytics.getAncCompletionRate() + "%");
+        if (tvInstitutionalDelivery != null) tvInstitutionalDelivery.setText(analytics.getInstitutionalDeliveryRate() + "%");
+        if (tvAnemiaRate != null) tvAnemiaRate.setText(analytics.getAnemiaRate() + "%");
+        if (tvImmunizationRate != null) tvImmunizationRate.setText(analytics.getImmunizationRate() + "%");
     }
 
     private void showReportOptions() {
@@ -200,24 +141,14 @@ public class DoctorHealthAnalyticsFragment extends Fragment {
     }
 
     private String buildFullReport() {
-        int total = allPatients.size();
-        int pregnant = 0, delivered = 0, highRisk = 0, postpartum = 0;
-
-        for (Patient p : allPatients) {
-            if ("pregnant".equals(p.getPregnancyStatus())) pregnant++;
-            else if ("delivered".equals(p.getPregnancyStatus())) delivered++;
-            else if ("postpartum".equals(p.getPregnancyStatus())) postpartum++;
-            if (p.isHighRisk()) highRisk++;
-        }
-
         StringBuilder sb = new StringBuilder();
         sb.append(getReportHeader("Full Patient Summary"));
         sb.append("OVERVIEW\n--------\n");
-        sb.append("Total Patients:    ").append(total).append("\n");
-        sb.append("Pregnant:          ").append(pregnant).append("\n");
-        sb.append("Delivered:         ").append(delivered).append("\n");
-        sb.append("Postpartum:        ").append(postpartum).append("\n");
-        sb.append("High Risk:         ").append(highRisk).append("\n\n");
+        sb.append("Total Patients:    ").append(analytics.getTotal()).append("\n");
+        sb.append("Pregnant:          ").append(analytics.getPregnant()).append("\n");
+        sb.append("Delivered:         ").append(analytics.getDelivered()).append("\n");
+        sb.append("Postpartum:        ").append(analytics.getPostpartum()).append("\n");
+        sb.append("High Risk:         ").append(analytics.getHighRisk()).append("\n\n");
         sb.append("PATIENT LIST\n------------\n");
 
         for (int i = 0; i < allPatients.size(); i++) {
@@ -270,6 +201,9 @@ public class DoctorHealthAnalyticsFragment extends Fragment {
     private String buildPregnantReport() {
         StringBuilder sb = new StringBuilder();
         sb.append(getReportHeader("Pregnant Patients Report"));
+        if (analytics.getPregnant() > 0) {
+            sb.append("Total Pregnant Patients: ").append(analytics.getPregnant()).append("\n\n");
+        }
 
         int count = 0;
         for (int i = 0; i < allPatients.size(); i++) {
@@ -291,10 +225,6 @@ public class DoctorHealthAnalyticsFragment extends Fragment {
         }
 
         if (count == 0) sb.append("No pregnant patients found.\n");
-        else {
-            String header = getReportHeader("Pregnant Patients Report");
-            sb.insert(header.length(), "Total Pregnant Patients: " + count + "\n\n");
-        }
 
         return sb.toString();
     }
@@ -303,21 +233,11 @@ public class DoctorHealthAnalyticsFragment extends Fragment {
         StringBuilder sb = new StringBuilder();
         sb.append(getReportHeader("Delivery Status Report"));
 
-        int delivered = 0, pregnant = 0, postpartum = 0, other = 0;
-        for (Patient p : allPatients) {
-            switch (p.getPregnancyStatus() != null ? p.getPregnancyStatus() : "") {
-                case "delivered": delivered++; break;
-                case "pregnant": pregnant++; break;
-                case "postpartum": postpartum++; break;
-                default: other++; break;
-            }
-        }
-
         sb.append("STATUS SUMMARY\n--------------\n");
-        sb.append("Currently Pregnant:  ").append(pregnant).append("\n");
-        sb.append("Delivered:           ").append(delivered).append("\n");
-        sb.append("Postpartum:          ").append(postpartum).append("\n");
-        sb.append("Other/Unknown:       ").append(other).append("\n\n");
+        sb.append("Currently Pregnant:  ").append(analytics.getPregnant()).append("\n");
+        sb.append("Delivered:           ").append(analytics.getDelivered()).append("\n");
+        sb.append("Postpartum:          ").append(analytics.getPostpartum()).append("\n");
+        sb.append("Other/Unknown:       ").append(analytics.getOtherStatus()).append("\n\n");
         sb.append("DELIVERED PATIENTS\n------------------\n");
 
         int count = 0;
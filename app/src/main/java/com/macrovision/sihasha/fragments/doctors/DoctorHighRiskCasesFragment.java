@@ -114,6 +114,12 @@ public class DoctorHighRiskCasesFragment extends Fragment implements PatientAdap
             showNoData();
             return;
         }
+        dataManager.whenReady(() -> {
+            if (isAdded()) showHighRiskPatients();
+        });
+    }
+
+    private void showHighRiskPatients() {
         try {
             // ✅ FIX: Doctors see ALL high-risk patients in the system,
             // not just those with assignedDoctor == doctorId
@@ -139,7 +145,7 @@ public class DoctorHighRiskCasesFragment extends Fragment implements PatientAdap
         if (filteredPatients == null) return;
         filteredPatients.clear();
         if (highRiskPatients != null) filteredPatients.addAll(highRiskPatients);
-        if (adapter != null) adapter.notifyDataSetChanged();
+        if (adapter != null) adapter.submitList(filteredPatients);
         if (filteredPatients.isEmpty()) showNoData(); else hideNoData();
     }
 
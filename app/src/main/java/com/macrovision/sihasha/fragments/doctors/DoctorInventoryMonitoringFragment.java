@@ -55,7 +55,9 @@ public class DoctorInventoryMonitoringFragment extends Fragment
             setupDataManager();
             setupRecyclerView();
             setupChipGroup();
-            loadInventoryData();
+            dataManager.whenReady(() -> {
+                if (isAdded()) loadInventoryData();
+            });
             setupClickListeners();
         } catch (Exception e) {
             e.printStackTrace();
@@ -101,11 +103,11 @@ public class DoctorInventoryMonitoringFragment extends Fragment
 
     private void setupClickListeners() {
         if (btnRefresh != null) {
-            btnRefresh.setOnClickListener(v -> {
-                dataManager.refreshInventoryFromStorage();
+            btnRefresh.setOnClickListener(v -> dataManager.refreshInventoryFromStorage(() -> {
+                if (!isAdded()) return;
                 loadInventoryData();
                 Toast.makeText(requireContext(), "Inventory refreshed", Toast.LENGTH_SHORT).show();
-            });
+            }));
         }
     }
 
@@ -157,7 +159,7 @@ public class DoctorInventoryMonitoringFragment extends Fragment
         } else {
             if (layoutNoData != null) layoutNoData.setVisibility(View.GONE);
             if (recyclerView != null) recyclerView.setVisibility(View.VISIBLE);
-            if (adapter != null) adapter.notifyDataSetChanged();
+            if (adapter != null) adapter.submitList(filteredItems);
         }
     }
 
@@ -184,7 +186,8 @@ public class DoctorInventoryMonitoringFragment extends Fragment
     }
 
     public void refreshData() {
-        dataManager.refreshInventoryFromStorage();
-        loadInventoryData();
+        dataManager.refreshInventoryFromStorage(() -> {
+            if (isAdded()) loadInventoryData();
+        });
     }
 }
\ No newline at end of file
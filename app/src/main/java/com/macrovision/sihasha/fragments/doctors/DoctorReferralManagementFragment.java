@@ -115,6 +115,12 @@ public class DoctorReferralManagementFragment extends Fragment implements Patien
             showNoData();
             return;
         }
+        dataManager.whenReady(() -> {
+            if (isAdded()) showReferrals();
+        });
+    }
+
+    private void showReferrals() {
         try {
             // Only show patients assigned to THIS doctor, not all patients
             referralPatients = dataManager.getPatientsForDoctor(currentUser.getId());
@@ -137,7 +143,7 @@ public class DoctorReferralManagementFragment extends Fragment implements Patien
         if (filteredPatients == null) return;
         filteredPatients.clear();
         if (referralPatients != null) filteredPatients.addAll(referralPatients);
-        if (adapter != null) adapter.notifyDataSetChanged();
+        if (adapter != null) adapter.submitList(filteredPatients);
         if (filteredPatients.isEmpty()) showNoData(); else hideNoData();
     }
 
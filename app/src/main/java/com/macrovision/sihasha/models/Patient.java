@@ -1,5 +1,7 @@
 package com.macrovision.sihasha.models;
 
+import java.util.Map;
+
 public class Patient {
     private String id;
     private String name;
@@ -41,6 +43,12 @@ public class Patient {
     private String referralDate;
     private String referralStatus;  // "pending", "accepted", "rejected"
 
+    // Sync metadata, maintained by PatientVersions
+    private long version;           // Lamport stamp of the latest edit
+    private long updatedAt;         // Wall-clock millis of the latest edit
+    private String updatedBy;       // Device that made the latest edit
+    private Map<String, Long> fieldVersions; // Field name -> stamp of its last edit; null if never edited
+
     // Constructors
     public Patient() {}
 
@@ -171,4 +179,16 @@ public class Patient {
 
     public String getReferralStatus() { return referralStatus; }
     public void setReferralStatus(String referralStatus) { this.referralStatus = referralStatus; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+
+    public String getUpdatedBy() { return updatedBy; }
+    public void setUpdatedBy(String updatedBy) { this.updatedBy = updatedBy; }
+
+    public Map<String, Long> getFieldVersions() { return fieldVersions; }
+    public void setFieldVersions(Map<String, Long> fieldVersions) { this.fieldVersions = fieldVersions; }
 }
\ No newline at end of file
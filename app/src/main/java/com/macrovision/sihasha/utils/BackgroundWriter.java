@@ -0,0 +1,72 @@
+package com.macrovision.sihasha.utils;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single background thread that owns all disk writes for DataManager.
+ *
+ * Tasks run one at a time in submission order. Snapshot-style writes can be
+ * submitted with enqueueLatest(): while one is still waiting to run, newer
+ * writes under the same key replace it, so a burst of edits costs one write.
+ */
+public class BackgroundWriter {
+    private static final String TAG = "BackgroundWriter";
+
+    private final ExecutorService executor;
+    // Latest not-yet-started task per coalescing key
+    private final Map<String, Runnable> pending = new HashMap<>();
+
+    public BackgroundWriter(String threadName) {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+    }
+
+    // Runs every task, in order
+    public void execute(Runnable task) {
+        executor.execute(() -> runSafely(task));
+    }
+
+    // Runs only the most recent task queued under this key
+    public void enqueueLatest(String key, Runnable task) {
+        synchronized (pending) {
+            if (pending.put(key, task) != null) return; // already queued, just swapped in the newer one
+        }
+        executor.execute(() -> {
+            Runnable latest;
+            synchronized (pending) {
+                latest = pending.remove(key);
+            }
+            if (latest != null) runSafely(latest);
+        });
+    }
+
+    // Blocks until everything queued before this call has run
+    public boolean awaitIdle(long timeoutMs) {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(done::countDown);
+        try {
+            return done.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            Log.e(TAG, "Background write failed", e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.macrovision.sihasha.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads what BinaryEncoder wrote. Running off the end of the record is an
+ * EOFException, an impossible value an IOException. Dictionary strings are
+ * StringPool instances, shared with everything else loaded in the process.
+ */
+public class BinaryDecoder {
+    private final byte[] data;
+    private final StringDictionary dictionary;
+    private final int end;
+    private int position;
+
+    public BinaryDecoder(byte[] data, int offset, int length, StringDictionary dictionary) {
+        this.data = data;
+        this.position = offset;
+        this.end = offset + length;
+        this.dictionary = dictionary;
+    }
+
+    public int readVarInt() throws IOException {
+        int raw = readUnsignedVarInt();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public int readUnsignedVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public long readUnsignedVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public double readDouble() throws IOException {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | readByte();
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public String readString() throws IOException {
+        int prefix = readUnsignedVarInt();
+        if (prefix == 0) return null;
+        int length = prefix - 1;
+        if (length > end - position) throw new EOFException();
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public String readDictString() throws IOException {
+        int code = readUnsignedVarInt();
+        if (code == BinaryEncoder.DICT_NULL) return null;
+        if (code == BinaryEncoder.DICT_NEW) {
+            String value = StringPool.canonical(readString());
+            if (value == null) throw new IOException("Null dictionary entry");
+            dictionary.add(value);
+            return value;
+        }
+        int index = code - BinaryEncoder.DICT_FIRST_INDEX;
+        if (index >= dictionary.size()) throw new IOException("Unknown dictionary index " + index);
+        return dictionary.get(index);
+    }
+
+    public boolean hasRemaining() {
+        return position < end;
+    }
+
+    private int readByte() throws IOException {
+        if (position >= end) throw new EOFException();
+        return data[position++] & 0xFF;
+    }
+}
@@ -0,0 +1,101 @@
+package com.macrovision.sihasha.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with the primitives used by the binary record codecs:
+ * zig-zag varints, length-prefixed UTF-8 and dictionary-coded strings.
+ */
+public class BinaryEncoder {
+    // Dictionary string codes: 0 = null, 1 = new entry follows inline, n >= 2 = entry n - 2
+    static final int DICT_NULL = 0;
+    static final int DICT_NEW = 1;
+    static final int DICT_FIRST_INDEX = 2;
+
+    private final StringDictionary dictionary;
+    private byte[] buffer = new byte[128];
+    private int size = 0;
+
+    public BinaryEncoder(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public void writeVarInt(int value) {
+        writeUnsignedVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeUnsignedVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    public void writeUnsignedVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            writeByte((int) (bits >>> shift));
+        }
+    }
+
+    // Length + 1 prefix so that null fits in one byte
+    public void writeString(String value) {
+        if (value == null) {
+            writeUnsignedVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsignedVarInt(bytes.length + 1);
+        writeBytes(bytes);
+    }
+
+    public void writeDictString(String value) {
+        if (value == null) {
+            writeUnsignedVarInt(DICT_NULL);
+            return;
+        }
+        int index = dictionary.indexOf(value);
+        if (index >= 0) {
+            writeUnsignedVarInt(index + DICT_FIRST_INDEX);
+        } else {
+            writeUnsignedVarInt(DICT_NEW);
+            writeString(value);
+            dictionary.add(value);
+        }
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(size + 1);
+        buffer[size++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(size + bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.InventoryItem;
+import com.macrovision.sihasha.models.Patient;
+import com.macrovision.sihasha.models.Staff;
+import com.macrovision.sihasha.models.User;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary layouts for the persisted models.
+ *
+ * Fields are written positionally (no keys): ints as zig-zag varints, free text as
+ * length-prefixed UTF-8, and low-cardinality values such as village, block, district,
+ * pregnancyStatus, religion, caste and bloodGroup through the file's StringDictionary.
+ *
+ * To add a field, append it at the end of encode(), bump that codec's schema version,
+ * and in decode() read it only when schemaVersion is new enough.
+ */
+public final class BinaryModelCodecs {
+
+    // Stored in file headers; never reuse a value. JsonRecordCodec.ID is 1.
+    public static final int PATIENT_CODEC_ID = 2;
+    public static final int INVENTORY_CODEC_ID = 3;
+    public static final int USER_CODEC_ID = 4;
+    public static final int STAFF_CODEC_ID = 5;
+
+    private BinaryModelCodecs() {}
+
+    public static final RecordCodec<Patient> PATIENT = new RecordCodec<Patient>() {
+        @Override public int getId() { return PATIENT_CODEC_ID; }
+        // 2: sync metadata (version, updatedAt, updatedBy, fieldVersions)
+        @Override public int getSchemaVersion() { return 2; }
+
+        @Override
+        public byte[] encode(Patient p, StringDictionary dictionary) {
+            BinaryEncoder out = new BinaryEncoder(dictionary);
+            out.writeString(p.getId());
+            out.writeString(p.getName());
+            out.writeString(p.getHusbandName());
+            out.writeVarInt(p.getAge());
+            out.writeString(p.getPhoneNumber());
+            out.writeString(p.getAddress());
+            out.writeDictString(p.getVillage());
+            out.writeDictString(p.getBlock());
+            out.writeDictString(p.getDistrict());
+            out.writeString(p.getAadharNumber());
+            out.writeString(p.getBankAccount());
+            out.writeString(p.getIfscCode());
+            out.writeDictString(p.getReligion());
+            out.writeDictString(p.getCaste());
+            out.writeDictString(p.getEducation());
+            out.writeDictString(p.getOccupation());
+            out.writeDictString(p.getEconomicStatus());
+            out.writeVarInt(p.getPregnancyNumber());
+            out.writeVarInt(p.getLiveChildren());
+            out.writeVarInt(p.getPreviousAbortions());
+            out.writeString(p.getLmpDate());
+            out.writeString(p.getEddDate());
+            out.writeDictString(p.getPregnancyStatus());
+            writeDictStrings(out, p.getRiskFactors());
+            out.writeVarInt(p.getHeight());
+            out.writeDictString(p.getBloodGroup());
+            out.writeString(p.getRegistrationDate());
+            out.writeDictString(p.getAshaId());
+            out.writeDictString(p.getPhcId());
+            out.writeBoolean(p.isHighRisk());
+            out.writeDictString(p.getAssignedDoctor());
+            out.writeString(p.getLastVisit());
+            out.writeBoolean(p.isReferred());
+            out.writeDictString(p.getReferredTo());
+            out.writeDictString(p.getReferredBy());
+            out.writeString(p.getReferralDate());
+            out.writeDictString(p.getReferralStatus());
+            out.writeUnsignedVarLong(p.getVersion());
+            out.writeUnsignedVarLong(p.getUpdatedAt());
+            out.writeDictString(p.getUpdatedBy());
+            writeLongMap(out, p.getFieldVersions());
+            return out.toByteArray();
+        }
+
+        @Override
+        public Patient decode(byte[] data, int offset, int length, int schemaVersion,
+                           StringDictionary dictionary) throws IOException {
+            checkSchema(schemaVersion, getSchemaVersion());
+            BinaryDecoder in = new BinaryDecoder(data, offset, length, dictionary);
+            Patient p = new Patient();
+            p.setId(in.readString());
+            p.setName(in.readString());
+            p.setHusbandName(in.readString());
+            p.setAge(in.readVarInt());
+            p.setPhoneNumber(in.readString());
+            p.setAddress(in.readString());
+            p.setVillage(in.readDictString());
+            p.setBlock(in.readDictString());
+            p.setDistrict(in.readDictString());
+            p.setAadharNumber(in.readString());
+            p.setBankAccount(in.readString());
+            p.setIfscCode(in.readString());
+            p.setReligion(in.readDictString());
+            p.setCaste(in.readDictString());
+            p.setEducation(in.readDictString());
+            p.setOccupation(in.readDictString());
+            p.setEconomicStatus(in.readDictString());
+            p.setPregnancyNumber(in.readVarInt());
+            p.setLiveChildren(in.readVarInt());
+            p.setPreviousAbortions(in.readVarInt());
+            p.setLmpDate(in.readString());
+            p.setEddDate(in.readString());
+            p.setPregnancyStatus(in.readDictString());
+            p.setRiskFactors(readDictStrings(in));
+            p.setHeight(in.readVarInt());
+            p.setBloodGroup(in.readDictString());
+            p.setRegistrationDate(in.readString());
+            p.setAshaId(in.readDictString());
+            p.setPhcId(in.readDictString());
+            p.setHighRisk(in.readBoolean());
+            p.setAssignedDoctor(in.readDictString());
+            p.setLastVisit(in.readString());
+            p.setReferred(in.readBoolean());
+            p.setReferredTo(in.readDictString());
+            p.setReferredBy(in.readDictString());
+            p.setReferralDate(in.readString());
+            p.setReferralStatus(in.readDictString());
+            if (schemaVersion >= 2) {
+                p.setVersion(in.readUnsignedVarLong());
+                p.setUpdatedAt(in.readUnsignedVarLong());
+                p.setUpdatedBy(in.readDictString());
+                p.setFieldVersions(readLongMap(in));
+            }
+            return p;
+        }
+    };
+
+    public static final RecordCodec<InventoryItem> INVENTORY_ITEM = new RecordCodec<InventoryItem>() {
+        @Override public int getId() { return INVENTORY_CODEC_ID; }
+        @Override public int getSchemaVersion() { return 1; }
+
+        @Override
+        public byte[] encode(InventoryItem item, StringDictionary dictionary) {
+            BinaryEncoder out = new BinaryEncoder(dictionary);
+            out.writeString(item.getId());
+            out.writeString(item.getName());
+            out.writeDictString(item.getCategory());
+            out.writeVarInt(item.getCurrentStock());
+            out.writeVarInt(item.getMinimumStock());
+            out.writeString(item.getExpiryDate());
+            out.writeString(item.getBatchNumber());
+            out.writeDictString(item.getSupplier());
+            out.writeDouble(item.getCostPerUnit());
+            out.writeDictString(item.getStorageTemp());
+            out.writeDictString(item.getManufacturer());
+            writeIntMap(out, item.getPhcDistribution());
+            return out.toByteArray();
+        }
+
+        @Override
+        public InventoryItem decode(byte[] data, int offset, int length, int schemaVersion,
+                           StringDictionary dictionary) throws IOException {
+            checkSchema(schemaVersion, getSchemaVersion());
+            BinaryDecoder in = new BinaryDecoder(data, offset, length, dictionary);
+            InventoryItem item = new InventoryItem();
+            item.setId(in.readString());
+            item.setName(in.readString());
+            item.setCategory(in.readDictString());
+            item.setCurrentStock(in.readVarInt());
+            item.setMinimumStock(in.readVarInt());
+            item.setExpiryDate(in.readString());
+            item.setBatchNumber(in.readString());
+            item.setSupplier(in.readDictString());
+            item.setCostPerUnit(in.readDouble());
+            item.setStorageTemp(in.readDictString());
+            item.setManufacturer(in.readDictString());
+            item.setPhcDistribution(readIntMap(in));
+            return item;
+        }
+    };
+
+    public static final RecordCodec<User> USER = new RecordCodec<User>() {
+        @Override public int getId() { return USER_CODEC_ID; }
+        @Override public int getSchemaVersion() { return 1; }
+
+        @Override
+        public byte[] encode(User user, StringDictionary dictionary) {
+            BinaryEncoder out = new BinaryEncoder(dictionary);
+            out.writeString(user.getId());
+            out.writeString(user.getName());
+            out.writeDictString(user.getRole());
+            out.writeString(user.getPhone());
+            out.writeDictString(user.getVillage());
+            out.writeDictString(user.getBlock());
+            out.writeDictString(user.getDistrict());
+            out.writeDictString(user.getState());
+            out.writeDictString(user.getPhcId());
+            out.writeString(user.getPassword());
+            writeUserPerformance(out, user.getPerformance());
+            return out.toByteArray();
+        }
+
+        @Override
+        public User decode(byte[] data, int offset, int length, int schemaVersion,
+                           StringDictionary dictionary) throws IOException {
+            checkSchema(schemaVersion, getSchemaVersion());
+            BinaryDecoder in = new BinaryDecoder(data, offset, length, dictionary);
+            User user = new User();
+            user.setId(in.readString());
+            user.setName(in.readString());
+            user.setRole(in.readDictString());
+            user.setPhone(in.readString());
+            user.setVillage(in.readDictString());
+            user.setBlock(in.readDictString());
+            user.setDistrict(in.readDictString());
+            user.setState(in.readDictString());
+            user.setPhcId(in.readDictString());
+            user.setPassword(in.readString());
+            user.setPerformance(readUserPerformance(in));
+            return user;
+        }
+    };
+
+    public static final RecordCodec<Staff> STAFF = new RecordCodec<Staff>() {
+        @Override public int getId() { return STAFF_CODEC_ID; }
+        @Override public int getSchemaVersion() { return 1; }
+
+        @Override
+        public byte[] encode(Staff staff, StringDictionary dictionary) {
+            BinaryEncoder out = new BinaryEncoder(dictionary);
+            out.writeString(staff.getId());
+            out.writeString(staff.getName());
+            out.writeDictString(staff.getRole());
+            out.writeString(staff.getPhone());
+            out.writeString(staff.getEmail());
+            out.writeDictString(staff.getVillage());
+            out.writeDictString(staff.getBlock());
+            out.writeDictString(staff.getDistrict());
+            out.writeDictString(staff.getState());
+            out.writeDictString(staff.getPhcId());
+            out.writeDictString(staff.getPhcName());
+            out.writeDictString(staff.getQualification());
+            out.writeString(staff.getExperience());
+            out.writeString(staff.getJoiningDate());
+            out.writeString(staff.getLastTraining());
+            out.writeString(staff.getAssignedPopulation());
+            out.writeString(staff.getAssignedFamilies());
+            out.writeDictString(staff.getSpecialization());
+            out.writeString(staff.getResponsibilities());
+            writeStaffPerformance(out, staff.getPerformance());
+            out.writeDictString(staff.getStatus());
+            out.writeDictString(staff.getDesignation());
+            out.writeString(staff.getManagedPHCs());
+            return out.toByteArray();
+        }
+
+        @Override
+        public Staff decode(byte[] data, int offset, int length, int schemaVersion,
+                           StringDictionary dictionary) throws IOException {
+            checkSchema(schemaVersion, getSchemaVersion());
+            BinaryDecoder in = new BinaryDecoder(data, offset, length, dictionary);
+            Staff staff = new Staff();
+            staff.setId(in.readString());
+            staff.setName(in.readString());
+            staff.setRole(in.readDictString());
+            staff.setPhone(in.readString());
+            staff.setEmail(in.readString());
+            staff.setVillage(in.readDictString());
+            staff.setBlock(in.readDictString());
+            staff.setDistrict(in.readDictString());
+            staff.setState(in.readDictString());
+            staff.setPhcId(in.readDictString());
+            staff.setPhcName(in.readDictString());
+            staff.setQualification(in.readDictString());
+            staff.setExperience(in.readString());
+            staff.setJoiningDate(in.readString());
+            staff.setLastTraining(in.readString());
+            staff.setAssignedPopulation(in.readString());
+            staff.setAssignedFamilies(in.readString());
+            staff.setSpecialization(in.readDictString());
+            staff.setResponsibilities(in.readString());
+            staff.setPerformance(readStaffPerformance(in));
+            staff.setStatus(in.readDictString());
+            staff.setDesignation(in.readDictString());
+            staff.setManagedPHCs(in.readString());
+            return staff;
+        }
+    };
+
+    // ===== HELPERS =====
+
+    private static void checkSchema(int schemaVersion, int supported) throws IOException {
+        if (schemaVersion < 1 || schemaVersion > supported) {
+            throw new IOException("Unsupported schema version " + schemaVersion);
+        }
+    }
+
+    // Count + 1 so that null fits in one byte
+    private static void writeDictStrings(BinaryEncoder out, String[] values) {
+        if (values == null) {
+            out.writeUnsignedVarInt(0);
+            return;
+        }
+        out.writeUnsignedVarInt(values.length + 1);
+        for (String value : values) out.writeDictString(value);
+    }
+
+    private static String[] readDictStrings(BinaryDecoder in) throws IOException {
+        int prefix = in.readUnsignedVarInt();
+        if (prefix == 0) return null;
+        String[] values = new String[prefix - 1];
+        for (int i = 0; i < values.length; i++) values[i] = in.readDictString();
+        return values;
+    }
+
+    private static void writeIntMap(BinaryEncoder out, Map<String, Integer> map) {
+        if (map == null) {
+            out.writeUnsignedVarInt(0);
+            return;
+        }
+        out.writeUnsignedVarInt(map.size() + 1);
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            out.writeDictString(entry.getKey());
+            out.writeBoolean(entry.getValue() != null);
+            if (entry.getValue() != null) out.writeVarInt(entry.getValue());
+        }
+    }
+
+    private static Map<String, Integer> readIntMap(BinaryDecoder in) throws IOException {
+        int prefix = in.readUnsignedVarInt();
+        if (prefix == 0) return null;
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < prefix - 1; i++) {
+            String key = in.readDictString();
+            map.put(key, in.readBoolean() ? in.readVarInt() : null);
+        }
+        return map;
+    }
+
+    // Keys (field names) go through the dictionary, so each costs a byte after first use
+    private static void writeLongMap(BinaryEncoder out, Map<String, Long> map) {
+        if (map == null) {
+            out.writeUnsignedVarInt(0);
+            return;
+        }
+        out.writeUnsignedVarInt(map.size() + 1);
+        for (Map.Entry<String, Long> entry : map.entrySet()) {
+            out.writeDictString(entry.getKey());
+            out.writeUnsignedVarLong(entry.getValue() != null ? entry.getValue() : 0);
+        }
+    }
+
+    private static Map<String, Long> readLongMap(BinaryDecoder in) throws IOException {
+        int prefix = in.readUnsignedVarInt();
+        if (prefix == 0) return null;
+        Map<String, Long> map = new HashMap<>();
+        for (int i = 0; i < prefix - 1; i++) {
+            String key = in.readDictString();
+            map.put(key, in.readUnsignedVarLong());
+        }
+        return map;
+    }
+
+    private static void writeUserPerformance(BinaryEncoder out, User.Performance performance) {
+        out.writeBoolean(performance != null);
+        if (performance == null) return;
+        out.writeVarInt(performance.getMonthlyTarget());
+        out.writeVarInt(performance.getAchieved());
+        out.writeVarInt(performance.getEfficiency());
+    }
+
+    private static User.Performance readUserPerformance(BinaryDecoder in) throws IOException {
+        if (!in.readBoolean()) return null;
+        int monthlyTarget = in.readVarInt();
+        int achieved = in.readVarInt();
+        int efficiency = in.readVarInt();
+        return new User.Performance(monthlyTarget, achieved, efficiency);
+    }
+
+    private static void writeStaffPerformance(BinaryEncoder out, Staff.Performance performance) {
+        out.writeBoolean(performance != null);
+        if (performance == null) return;
+        out.writeVarInt(performance.getMonthlyTarget());
+        out.writeVarInt(performance.getAchieved());
+        out.writeDouble(performance.getEfficiency());
+        out.writeVarInt(performance.getPatientsHandled());
+        out.writeVarInt(performance.getTrainingsCompleted());
+    }
+
+    private static Staff.Performance readStaffPerformance(BinaryDecoder in) throws IOException {
+        if (!in.readBoolean()) return null;
+        int monthlyTarget = in.readVarInt();
+        int achieved = in.readVarInt();
+        double efficiency = in.readDouble();
+        int patientsHandled = in.readVarInt();
+        int trainingsCompleted = in.readVarInt();
+        return new Staff.Performance(monthlyTarget, achieved, efficiency, patientsHandled, trainingsCompleted);
+    }
+}
@@ -0,0 +1,201 @@
+package com.macrovision.sihasha.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The records a single DataManager operation inserted, updated and removed.
+ *
+ * Produced by the merge engine and by local edits; persistence writes exactly these
+ * records, and listeners can patch what they display instead of reloading. A patient
+ * update's before always holds the old values, even when the stored object was edited
+ * in place; inventory and financial updates made that way have before == after.
+ */
+public final class ChangeSet<T> {
+
+    public static final class Update<T> {
+        public final T before;
+        public final T after;
+
+        Update(T before, T after) {
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    private static final ChangeSet<Object> EMPTY = new ChangeSet<>(
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+    @SuppressWarnings("unchecked")
+    public static <T> ChangeSet<T> empty() {
+        return (ChangeSet<T>) EMPTY;
+    }
+
+    private final List<T> inserted;
+    private final List<Update<T>> updated;
+    private final List<T> removed;
+
+    private ChangeSet(List<T> inserted, List<Update<T>> updated, List<T> removed) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.removed = removed;
+    }
+
+    public List<T> getInserted() { return inserted; }
+    public List<Update<T>> getUpdated() { return updated; }
+    public List<T> getRemoved() { return removed; }
+
+    public boolean isEmpty() {
+        return inserted.isEmpty() && updated.isEmpty() && removed.isEmpty();
+    }
+
+    public int size() {
+        return inserted.size() + updated.size() + removed.size();
+    }
+
+    // Patches a screen's own copy of the collection in one pass, keeping the position of
+    // records that stay. include decides which records belong in the list at all, so an
+    // update can also move a record into or out of it.
+    public void applyTo(List<T> list, KeyedList.KeyExtractor<T> keys, Predicate<? super T> include) {
+        if (isEmpty()) return;
+        Map<String, T> replacements = new HashMap<>();
+        for (Update<T> update : updated) replacements.put(keys.keyOf(update.after), update.after);
+        Set<String> gone = new HashSet<>();
+        for (T item : removed) gone.add(keys.keyOf(item));
+
+        Set<String> kept = new HashSet<>();
+        int write = 0;
+        for (int read = 0; read < list.size(); read++) {
+            T item = list.get(read);
+            String key = keys.keyOf(item);
+            if (gone.contains(key)) continue;
+            T replacement = replacements.get(key);
+            if (replacement != null) {
+                if (!include.test(replacement)) continue;
+                item = replacement;
+            }
+            kept.add(key);
+            list.set(write++, item);
+        }
+        list.subList(write, list.size()).clear();
+
+        for (Update<T> update : updated) {
+            if (!kept.contains(keys.keyOf(update.after)) && include.test(update.after)) list.add(update.after);
+        }
+        for (T item : inserted) {
+            if (!kept.contains(keys.keyOf(item)) && include.test(item)) list.add(item);
+        }
+    }
+
+    // ===== BUILDING =====
+
+    public static final class Builder<T> {
+        private final List<T> inserted = new ArrayList<>();
+        private final List<Update<T>> updated = new ArrayList<>();
+        private final List<T> removed = new ArrayList<>();
+
+        public Builder<T> insert(T item) {
+            inserted.add(item);
+            return this;
+        }
+
+        public Builder<T> update(T before, T after) {
+            updated.add(new Update<>(before, after));
+            return this;
+        }
+
+        public Builder<T> remove(T item) {
+            removed.add(item);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return inserted.isEmpty() && updated.isEmpty() && removed.isEmpty();
+        }
+
+        public ChangeSet<T> build() {
+            if (isEmpty()) return empty();
+            return new ChangeSet<>(Collections.unmodifiableList(new ArrayList<>(inserted)),
+                    Collections.unmodifiableList(new ArrayList<>(updated)),
+                    Collections.unmodifiableList(new ArrayList<>(removed)));
+        }
+    }
+
+    // Collects the change sets of several operations, from any thread, into one set per
+    // delivery. Records are matched by key, so an insert followed by an update arrives
+    // as one insert, and a record added and removed again does not arrive at all.
+    public static final class Accumulator<T> {
+
+        private static final class Entry<T> {
+            final boolean existedBefore;
+            final T before;
+            T after; // null once removed
+
+            Entry(boolean existedBefore, T before, T after) {
+                this.existedBefore = existedBefore;
+                this.before = before;
+                this.after = after;
+            }
+        }
+
+        private final KeyedList.KeyExtractor<T> keys;
+        private final Map<String, Entry<T>> entries = new LinkedHashMap<>();
+
+        public Accumulator(KeyedList.KeyExtractor<T> keys) {
+            this.keys = keys;
+        }
+
+        public synchronized void add(ChangeSet<T> changes) {
+            for (T item : changes.inserted) {
+                Entry<T> entry = entries.get(keys.keyOf(item));
+                if (entry != null) {
+                    entry.after = item;
+                } else {
+                    entries.put(keys.keyOf(item), new Entry<>(false, null, item));
+                }
+            }
+            for (Update<T> update : changes.updated) {
+                Entry<T> entry = entries.get(keys.keyOf(update.after));
+                if (entry != null) {
+                    entry.after = update.after;
+                } else {
+                    entries.put(keys.keyOf(update.after), new Entry<>(true, update.before, update.after));
+                }
+            }
+            for (T item : changes.removed) {
+                String key = keys.keyOf(item);
+                Entry<T> entry = entries.get(key);
+                if (entry == null) {
+                    entries.put(key, new Entry<>(true, item, null));
+                } else if (entry.existedBefore) {
+                    entry.after = null;
+                } else {
+                    entries.remove(key);
+                }
+            }
+        }
+
+        // Everything added since the last drain, coalesced per record
+        public synchronized ChangeSet<T> drain() {
+            Builder<T> builder = new Builder<>();
+            for (Entry<T> entry : entries.values()) {
+                if (entry.after == null) {
+                    builder.remove(entry.before);
+                } else if (entry.existedBefore) {
+                    builder.update(entry.before, entry.after);
+                } else {
+                    builder.insert(entry.after);
+                }
+            }
+            entries.clear();
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.macrovision.sihasha.utils;
+
+/**
+ * Immutable set of numbers shown on the dashboard stats grid, read from the counters
+ * DataManager keeps up to date as data changes, so building one never scans a list.
+ *
+ * scoped covers the patients the user is responsible for (an ASHA's own patients,
+ * a doctor's assigned patients, everyone for other roles); all covers every patient.
+ */
+public final class DashboardCounters {
+
+    private final PatientAnalytics scoped;
+    private final PatientAnalytics all;
+    private final int lowStockItems;
+    private final int inventoryItems;
+    private final int ashaWorkers;
+    private final int staff;
+
+    DashboardCounters(PatientAnalytics scoped, PatientAnalytics all, int lowStockItems,
+                      int inventoryItems, int ashaWorkers, int staff) {
+        this.scoped = scoped;
+        this.all = all;
+        this.lowStockItems = lowStockItems;
+        this.inventoryItems = inventoryItems;
+        this.ashaWorkers = ashaWorkers;
+        this.staff = staff;
+    }
+
+    public PatientAnalytics getScoped() { return scoped; }
+    public PatientAnalytics getAll() { return all; }
+
+    public int getTotal() { return scoped.getTotal(); }
+    public int getHighRisk() { return scoped.getHighRisk(); }
+    public int getPregnant() { return scoped.getPregnant(); }
+    public int getDelivered() { return scoped.getDelivered(); }
+    public int getReferred() { return scoped.getReferred(); }
+
+    public int getLowStockItems() { return lowStockItems; }
+    public int getInventoryItems() { return inventoryItems; }
+    public int getAshaWorkers() { return ashaWorkers; }
+    public int getStaff() { return staff; }
+}
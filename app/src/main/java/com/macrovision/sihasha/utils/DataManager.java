@@ -1,10 +1,14 @@
 package com.macrovision.sihasha.utils;
 
+import android.app.Application;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import com.macrovision.sihasha.models.FinancialData;
 import com.macrovision.sihasha.models.InventoryItem;
@@ -12,94 +16,259 @@ import com.macrovision.sihasha.models.Patient;
 import com.macrovision.sihasha.models.Staff;
 import com.macrovision.sihasha.models.User;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
 public class DataManager {
     private static final String TAG = "DataManager";
     private static final String PREFS_NAME = "sihasha_app_prefs";
-    private static final String PATIENTS_KEY = "patients_data";
-    private static final String USERS_KEY = "users_data";
+    private static final String PATIENTS_KEY = "patients_data"; // legacy blob, migrated to PATIENTS_LOG_FILE
+    private static final String PATIENTS_LOG_FILE = "patients.log";
+    private static final String USERS_KEY = "users_data"; // legacy, migrated to USERS_FILE
     private static final String FINANCIAL_KEY = "financial_data";
-    private static final String INVENTORY_KEY = "inventory_data";
-    private static final String STAFF_KEY = "staff_data";
+    private static final String INVENTORY_KEY = "inventory_data"; // legacy, migrated to INVENTORY_FILE
+    private static final String STAFF_KEY = "staff_data"; // legacy, migrated to STAFF_FILE
+    private static final String USERS_FILE = "users.dat";
+    private static final String INVENTORY_FILE = "inventory.dat";
+    private static final String STAFF_FILE = "staff.dat";
+    // Compact binary records on disk (BinaryModelCodecs); false keeps writing JSON.
+    // Either way, files in the other format are still read.
+    private static final boolean BINARY_STORAGE = true;
     // Bump this number any time you want to wipe stale SharedPreferences data
     private static final int DATA_VERSION = 3; // Incremented for Firebase
     private static final String DATA_VERSION_KEY = "data_version";
+    private static final String DEVICE_ID_KEY = "device_id"; // stamps this device's patient edits
 
     private Context context;
-    private List<User> users;
-    private List<Patient> patients;
-    private List<InventoryItem> inventoryItems;
-    private List<Staff> staffList;
-    private FinancialData financialData;
+    // Primary-key indexed: point reads and writes by ID are O(1).
+    // Threading: Firebase callbacks, the disk thread and the UI all touch these. Each
+    // collection is its own lock stripe (KeyedList.readLock/writeLock): a write holds the
+    // stripe's write lock across the list change and every index derived from it, and
+    // index queries hold its read lock. Whole-list reads take the list's immutable
+    // snapshot and never block. Stripes are never nested except in resetToEmpty, which
+    // takes them in the order users, patients, inventory. Lock order overall: the
+    // PersistenceScheduler flush lock, then the stripes, then the scheduler's monitor,
+    // which markDirty takes inside a stripe and flushNow never holds while snapshotting.
+    private final KeyedList<User> users = new KeyedList<>(User::getId);
+    private final KeyedList<Patient> patients = new KeyedList<>(Patient::getId);
+    private final KeyedList<InventoryItem> inventoryItems = new KeyedList<>(InventoryItem::getId);
+    private List<Staff> staffList; // guarded by staffLock
+    private final Object staffLock = new Object();
+    // Read-only staff view, valid while users.snapshot() is still its source
+    private static final class StaffProjection {
+        final List<User> source;
+        final List<Staff> staff;
+
+        StaffProjection(List<User> source, List<Staff> staff) {
+            this.source = source;
+            this.staff = staff;
+        }
+    }
+    private volatile StaffProjection staffProjection;
+    private volatile FinancialData financialData;
     
     private static DataManager instance;
     private Gson gson;
     private SharedPreferences prefs;
+    private PatientStore patientStore;
+    // Streamed record-by-record through ModelTypeAdapters or BinaryModelCodecs
+    private RecordListFile<User> usersFile;
+    private RecordListFile<Staff> staffFile;
+    private RecordListFile<InventoryItem> inventoryFile;
+    private final PatientIndex patientIndex = new PatientIndex();
+    private final PatientSearchIndex patientSearchIndex = new PatientSearchIndex();
+    // Dashboard numbers, kept current on every mutation instead of counted on demand
+    private final PatientCounters patientCounters = new PatientCounters();
+    // Lamport stamps for local edits and field-level merging of Firebase copies
+    private PatientVersions patientVersions;
+    // Applies Firebase copies to the patients list, reporting only what actually changed
+    private PatientMerger patientMerger;
+    private final Set<String> ashaWorkerIds = new HashSet<>(); // users stripe
+    private final Set<String> lowStockItemIds = new HashSet<>(); // inventory stripe
+
+    // All loads and saves run here, one at a time, off the main thread
+    private final BackgroundWriter diskWriter = new BackgroundWriter("DataManager-io");
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final List<Runnable> readyCallbacks = new ArrayList<>();
+    private boolean readyDispatched = false;
+
+    // Edits mark a collection dirty; each one is written at most once per flush window
+    private final PersistenceScheduler persistence = new PersistenceScheduler(diskWriter);
+    // Both guarded by the patients stripe
+    private final Set<String> dirtyPatientIds = new LinkedHashSet<>();
+    private boolean patientsNeedRewrite = false;
     
     // Firebase helper
     private FirebaseHelper firebaseHelper;
+    // Held for the life of the process; refreshes fetch from these instead of resubscribing
+    private FirebaseHelper.Subscription patientsSubscription;
+    private SyncScope subscribedScope; // what patientsSubscription downloads; guarded by this
+    private FirebaseHelper.Subscription usersSubscription;
+    // Which patients this device downloads; follows the signed-in user
+    private volatile SyncScope syncScope = SyncScope.NONE;
     private boolean isOnline = false;
 
-    // ✅ Listener so UI can react when Firebase pushes updates
+    // ✅ Listener so UI can react to local edits and Firebase updates. Called on the main
+    // thread with exactly what changed since the previous call, so a screen can patch the
+    // rows it shows; the no-argument versions suit screens that simply reload.
+    // Reloads from storage (refresh*FromStorage) are not reported: their callers reload.
     public interface OnDataChangedListener {
-        void onPatientsChanged();
-        void onUsersChanged();
+        default void onPatientsChanged() {}
+        default void onUsersChanged() {}
+        default void onPatientsChanged(ChangeSet<Patient> changes) { onPatientsChanged(); }
+        default void onUsersChanged(ChangeSet<User> changes) { onUsersChanged(); }
+        default void onInventoryChanged(ChangeSet<InventoryItem> changes) {}
+        // A single update whose before is the same object when edited in place
+        default void onFinancialDataChanged(ChangeSet<FinancialData> changes) {}
     }
-    private final java.util.List<OnDataChangedListener> dataListeners = new java.util.ArrayList<>();
+    private final CopyOnWriteArrayList<OnDataChangedListener> dataListeners = new CopyOnWriteArrayList<>();
 
     public void addDataListener(OnDataChangedListener listener) {
-        if (!dataListeners.contains(listener)) dataListeners.add(listener);
+        dataListeners.addIfAbsent(listener);
     }
     public void removeDataListener(OnDataChangedListener listener) {
         dataListeners.remove(listener);
     }
-    private void notifyPatientsChanged() {
-        for (OnDataChangedListener l : dataListeners) { try { l.onPatientsChanged(); } catch (Exception ignored) {} }
+
+    // Change sets wait here until the main thread delivers them, so a burst of
+    // per-record Firebase events reaches the UI as one coalesced set
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ChangeSet.Accumulator<Patient> pendingPatientChanges = new ChangeSet.Accumulator<>(Patient::getId);
+    private final ChangeSet.Accumulator<User> pendingUserChanges = new ChangeSet.Accumulator<>(User::getId);
+    private final ChangeSet.Accumulator<InventoryItem> pendingInventoryChanges = new ChangeSet.Accumulator<>(InventoryItem::getId);
+    private final ChangeSet.Accumulator<FinancialData> pendingFinancialChanges = new ChangeSet.Accumulator<>(data -> FINANCIAL_KEY);
+
+    private final Runnable patientsChangedNotifier = () -> {
+        ChangeSet<Patient> changes = pendingPatientChanges.drain();
+        if (changes.isEmpty()) return;
+        for (OnDataChangedListener l : dataListeners) {
+            try { l.onPatientsChanged(changes); } catch (Exception e) { Log.e(TAG, "Patients listener failed", e); }
+        }
+    };
+    private final Runnable usersChangedNotifier = () -> {
+        ChangeSet<User> changes = pendingUserChanges.drain();
+        if (changes.isEmpty()) return;
+        for (OnDataChangedListener l : dataListeners) {
+            try { l.onUsersChanged(changes); } catch (Exception e) { Log.e(TAG, "Users listener failed", e); }
+        }
+    };
+    private final Runnable inventoryChangedNotifier = () -> {
+        ChangeSet<InventoryItem> changes = pendingInventoryChanges.drain();
+        if (changes.isEmpty()) return;
+        for (OnDataChangedListener l : dataListeners) {
+            try { l.onInventoryChanged(changes); } catch (Exception e) { Log.e(TAG, "Inventory listener failed", e); }
+        }
+    };
+    private final Runnable financialChangedNotifier = () -> {
+        ChangeSet<FinancialData> changes = pendingFinancialChanges.drain();
+        if (changes.isEmpty()) return;
+        for (OnDataChangedListener l : dataListeners) {
+            try { l.onFinancialDataChanged(changes); } catch (Exception e) { Log.e(TAG, "Financial listener failed", e); }
+        }
+    };
+
+    private void schedulePatientsChanged(ChangeSet<Patient> changes) {
+        if (changes.isEmpty()) return;
+        pendingPatientChanges.add(changes);
+        mainHandler.removeCallbacks(patientsChangedNotifier);
+        mainHandler.post(patientsChangedNotifier);
+    }
+    private void scheduleUsersChanged(ChangeSet<User> changes) {
+        if (changes.isEmpty()) return;
+        pendingUserChanges.add(changes);
+        mainHandler.removeCallbacks(usersChangedNotifier);
+        mainHandler.post(usersChangedNotifier);
+    }
+    private void scheduleInventoryChanged(ChangeSet<InventoryItem> changes) {
+        if (changes.isEmpty()) return;
+        pendingInventoryChanges.add(changes);
+        mainHandler.removeCallbacks(inventoryChangedNotifier);
+        mainHandler.post(inventoryChangedNotifier);
+    }
+    private void scheduleFinancialChanged(FinancialData before, FinancialData after) {
+        pendingFinancialChanges.add(new ChangeSet.Builder<FinancialData>().update(before, after).build());
+        mainHandler.removeCallbacks(financialChangedNotifier);
+        mainHandler.post(financialChangedNotifier);
+    }
+
+    // Fired on the main thread, at most once per message loop, after any dashboard counter moves
+    public interface OnCountersChangedListener {
+        void onCountersChanged();
+    }
+    private final CopyOnWriteArrayList<OnCountersChangedListener> countersListeners = new CopyOnWriteArrayList<>();
+    private final Runnable countersChangedNotifier = this::notifyCountersChanged;
+
+    public void addCountersListener(OnCountersChangedListener listener) {
+        countersListeners.addIfAbsent(listener);
     }
-    private void notifyUsersChanged() {
-        for (OnDataChangedListener l : dataListeners) { try { l.onUsersChanged(); } catch (Exception ignored) {} }
+    public void removeCountersListener(OnCountersChangedListener listener) {
+        countersListeners.remove(listener);
+    }
+    private void notifyCountersChanged() {
+        for (OnCountersChangedListener l : countersListeners) {
+            try { l.onCountersChanged(); } catch (Exception e) { Log.e(TAG, "Counters listener failed", e); }
+        }
+    }
+    private void scheduleCountersChanged() {
+        mainHandler.removeCallbacks(countersChangedNotifier);
+        mainHandler.post(countersChangedNotifier);
     }
 
     public DataManager(Context context) {
+        this(context, connectFirebase(context));
+    }
+
+    // firebaseHelper may be null, e.g. in tests: everything then stays on this device
+    DataManager(Context context, FirebaseHelper firebaseHelper) {
         this.context = context.getApplicationContext();
-        this.gson = new Gson();
+        this.gson = ModelTypeAdapters.register(new GsonBuilder()).create();
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        
-        // Initialize Firebase separately to avoid circular dependency
+        this.patientVersions = new PatientVersions(getDeviceId());
+        this.patientMerger = new PatientMerger(patients, patientVersions);
+        File filesDir = this.context.getFilesDir();
+        this.patientStore = new PatientLogStore(new File(filesDir, PATIENTS_LOG_FILE), gson,
+                BINARY_STORAGE ? BinaryModelCodecs.PATIENT : new JsonRecordCodec<>(gson.getAdapter(Patient.class)));
+        this.usersFile = new RecordListFile<>(new File(filesDir, USERS_FILE), gson.getAdapter(User.class),
+                BinaryModelCodecs.USER, BINARY_STORAGE);
+        this.staffFile = new RecordListFile<>(new File(filesDir, STAFF_FILE), gson.getAdapter(Staff.class),
+                BinaryModelCodecs.STAFF, BINARY_STORAGE);
+        this.inventoryFile = new RecordListFile<>(new File(filesDir, INVENTORY_FILE), gson.getAdapter(InventoryItem.class),
+                BinaryModelCodecs.INVENTORY_ITEM, BINARY_STORAGE);
+        this.firebaseHelper = firebaseHelper;
+
+        persistence.registerIncremental(PATIENTS_LOG_FILE, this::snapshotPatientWrites);
+        persistence.registerSnapshot(USERS_KEY, this::snapshotUsers);
+        persistence.registerSnapshot(STAFF_KEY, this::snapshotStaff);
+        persistence.registerSnapshot(INVENTORY_KEY, this::snapshotInventory);
+        persistence.registerSnapshot(FINANCIAL_KEY, this::snapshotFinancial);
+        if (this.context instanceof Application) {
+            persistence.attach((Application) this.context);
+        }
+
+        // Parse everything in the background; screens wait via whenReady()
+        diskWriter.execute(this::loadAllFromStorage);
+    }
+
+    // Initialize Firebase separately to avoid circular dependency
+    private static FirebaseHelper connectFirebase(Context context) {
         try {
-            this.firebaseHelper = FirebaseHelper.getInstance(context);
+            return FirebaseHelper.getInstance(context);
         } catch (Exception e) {
             Log.e(TAG, "Failed to initialize Firebase: " + e.getMessage());
-            this.firebaseHelper = null;
-        }
-
-        // Wipe only stale non-user data when DATA_VERSION bumps.
-        // NEVER clear users_data — that would delete all registered accounts.
-        int savedVersion = prefs.getInt(DATA_VERSION_KEY, 0);
-        if (savedVersion < DATA_VERSION) {
-            android.util.Log.w(TAG, "Data version mismatch — clearing stale data (preserving users)");
-            String usersJson = prefs.getString(USERS_KEY, null); // save users first
-            prefs.edit().clear().apply();                         // wipe everything
-            if (usersJson != null) {
-                prefs.edit().putString(USERS_KEY, usersJson).apply(); // restore users
-            }
-            prefs.edit().putInt(DATA_VERSION_KEY, DATA_VERSION).apply();
+            return null;
         }
-
-        // Load all data from storage (NO DEMO DATA)
-        loadOrInitializeUsers();
-        loadOrInitializePatients();
-        loadOrInitializeInventory();
-        loadOrInitializeStaff();
-        loadOrInitializeFinancial();
-        
-        // Start syncing with Firebase
-        startFirebaseSync();
     }
 
     public static synchronized DataManager getInstance(Context context) {
@@ -108,6 +277,115 @@ public class DataManager {
         }
         return instance;
     }
+
+    private String getDeviceId() {
+        String deviceId = prefs.getString(DEVICE_ID_KEY, null);
+        if (deviceId == null) {
+            deviceId = java.util.UUID.randomUUID().toString();
+            prefs.edit().putString(DEVICE_ID_KEY, deviceId).apply();
+        }
+        return deviceId;
+    }
+
+    // ===== ASYNC LOADING =====
+
+    // Runs on the disk thread
+    private void loadAllFromStorage() {
+        try {
+            // Earlier builds kept these lists in *.json files; RecordListFile reads either format
+            renameLegacyFile("users.json", USERS_FILE);
+            renameLegacyFile("staff.json", STAFF_FILE);
+            renameLegacyFile("inventory.json", INVENTORY_FILE);
+
+            // Wipe only stale non-user data when DATA_VERSION bumps.
+            // NEVER clear users_data — that would delete all registered accounts.
+            int savedVersion = prefs.getInt(DATA_VERSION_KEY, 0);
+            if (savedVersion < DATA_VERSION) {
+                android.util.Log.w(TAG, "Data version mismatch — clearing stale data (preserving users)");
+                String usersJson = prefs.getString(USERS_KEY, null); // save users first
+                String deviceId = prefs.getString(DEVICE_ID_KEY, null);
+                prefs.edit().clear().commit();                        // wipe everything
+                if (usersJson != null) {
+                    prefs.edit().putString(USERS_KEY, usersJson).commit(); // restore users
+                }
+                if (deviceId != null) prefs.edit().putString(DEVICE_ID_KEY, deviceId).commit();
+                prefs.edit().putInt(DATA_VERSION_KEY, DATA_VERSION).commit();
+                patientStore.clear();
+                staffFile.delete();
+                inventoryFile.delete();
+            }
+
+            // Load all data from storage (NO DEMO DATA)
+            loadOrInitializeUsers();
+            loadOrInitializePatients();
+            loadOrInitializeInventory();
+            loadOrInitializeStaff();
+            loadOrInitializeFinancial();
+        } catch (RuntimeException e) {
+            // Whatever did load is served; waiting readers must not hang on a failed load
+            Log.e(TAG, "Loading stored data failed", e);
+        } finally {
+            loaded.countDown();
+            mainHandler.post(this::onLoaded);
+        }
+    }
+
+    private void renameLegacyFile(String legacyName, String name) {
+        File legacy = new File(context.getFilesDir(), legacyName);
+        File current = new File(context.getFilesDir(), name);
+        if (legacy.exists() && !current.exists() && !legacy.renameTo(current)) {
+            Log.w(TAG, "Could not rename " + legacyName + " to " + name);
+        }
+    }
+
+    private void onLoaded() {
+        Log.d(TAG, "Data loaded. " + getStorageInfo());
+
+        // Start syncing with Firebase
+        startFirebaseSync();
+
+        List<Runnable> callbacks;
+        synchronized (readyCallbacks) {
+            readyDispatched = true;
+            callbacks = new ArrayList<>(readyCallbacks);
+            readyCallbacks.clear();
+        }
+        for (Runnable callback : callbacks) {
+            try { callback.run(); } catch (Exception e) { Log.e(TAG, "Ready callback failed", e); }
+        }
+    }
+
+    public boolean isReady() {
+        return loaded.getCount() == 0;
+    }
+
+    // Runs the callback on the main thread once stored data is in memory (immediately if it already is)
+    public void whenReady(Runnable callback) {
+        synchronized (readyCallbacks) {
+            if (!readyDispatched) {
+                readyCallbacks.add(callback);
+                return;
+            }
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            callback.run();
+        } else {
+            mainHandler.post(callback);
+        }
+    }
+
+    // Safety net for callers that don't wait for whenReady(): block until the load finishes.
+    // Reads and edits both wait here, so a result is never reported before it is computed;
+    // screens reach DataManager through whenReady() so the main thread never parks.
+    private void awaitLoaded() {
+        if (loaded.getCount() == 0) return;
+        Log.w(TAG, "Data accessed before load finished, waiting");
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
     
     private void startFirebaseSync() {
         if (firebaseHelper == null) {
@@ -115,16 +393,21 @@ public class DataManager {
             return;
         }
         
+        // Keep a scope setSyncUser already installed; otherwise resume the saved login's
+        if (syncScope.isNone()) {
+            syncScope = SyncScope.forUser(new SharedPrefsManager(context).getCurrentUser());
+        }
+        subscribePatients();
+        
         try {
-            // Sync patients from Firebase
-            firebaseHelper.syncPatients(new FirebaseHelper.PatientsCallback() {
+            // Sync users from Firebase; this also delivers the current list right away
+            usersSubscription = firebaseHelper.subscribeUsers(new FirebaseHelper.UsersCallback() {
                 @Override
-                public void onSuccess(List<Patient> firebasePatients) {
-                    if (firebasePatients != null) {
+                public void onSuccess(List<User> firebaseUsers) {
+                    if (firebaseUsers != null) {
                         isOnline = true;
-                        if (!firebasePatients.isEmpty()) {
-                            mergePatients(firebasePatients);
-                            notifyPatientsChanged(); // ✅ Tell UI to refresh
+                        if (!firebaseUsers.isEmpty()) {
+                            mergeUsers(firebaseUsers);
                         }
                     }
                 }
@@ -132,198 +415,230 @@ public class DataManager {
                 @Override
                 public void onFailure(String error) {
                     isOnline = false;
-                    Log.w(TAG, "Firebase sync failed, using offline data: " + error);
+                    Log.w(TAG, "Firebase user sync failed: " + error);
                 }
             });
         } catch (Exception e) {
-            Log.e(TAG, "Error starting Firebase sync: " + e.getMessage());
+            Log.e(TAG, "Error starting user sync: " + e.getMessage());
             isOnline = false;
         }
-        
+    }
+
+    // Live patient sync, limited to the current sync scope. A subscription already open
+    // for that scope is kept, since reopening it downloads the whole scoped set again.
+    private synchronized void subscribePatients() {
+        SyncScope scope = syncScope;
+        if (patientsSubscription != null && scope.equals(subscribedScope)) return;
+        if (patientsSubscription != null) patientsSubscription.cancel();
+        patientsSubscription = null;
+        subscribedScope = scope;
         try {
-            // Sync users from Firebase
-            firebaseHelper.syncUsers(new FirebaseHelper.UsersCallback() {
+            // Sync patients from Firebase, one record at a time
+            patientsSubscription = firebaseHelper.subscribePatientChanges(scope, new FirebaseHelper.PatientChangesCallback() {
                 @Override
-                public void onSuccess(List<User> firebaseUsers) {
-                    if (firebaseUsers != null) {
-                        isOnline = true;
-                        if (!firebaseUsers.isEmpty()) {
-                            mergeUsers(firebaseUsers);
-                            // Also update staff list
-                            updateStaffListFromUsers(firebaseUsers);
-                        }
-                    }
+                public void onPatientUpserted(Patient patient) {
+                    isOnline = true;
+                    applyRemotePatient(patient);
+                }
+
+                @Override
+                public void onPatientRemoved(String patientId) {
+                    isOnline = true;
+                    applyRemotePatientRemoval(patientId);
                 }
                 
                 @Override
                 public void onFailure(String error) {
                     isOnline = false;
-                    Log.w(TAG, "Firebase user sync failed: " + error);
+                    Log.w(TAG, "Firebase sync failed, using offline data: " + error);
                 }
             });
         } catch (Exception e) {
-            Log.e(TAG, "Error starting user sync: " + e.getMessage());
+            Log.e(TAG, "Error starting Firebase sync: " + e.getMessage());
             isOnline = false;
         }
-        
-        // Refresh users after a delay
-        try {
-            android.os.Handler handler = new android.os.Handler();
-            handler.postDelayed(() -> {
-                refreshUsersFromFirebase();
-            }, 2000);
-        } catch (Exception e) {
-            Log.e(TAG, "Error scheduling refresh: " + e.getMessage());
-        }
     }
     
-    private void mergePatients(List<Patient> firebasePatients) {
-        if (patients == null) patients = new ArrayList<>();
-        
-        // Create a map of existing patients by ID
-        Map<String, Patient> patientMap = new HashMap<>();
-        for (Patient p : patients) {
-            patientMap.put(p.getId(), p);
+    // Only records whose version differs from ours are merged, indexed and written.
+    // complete: the list is every server record in the sync scope, so missing ones left it.
+    private void mergePatients(List<Patient> firebasePatients, boolean complete) {
+        PatientMerger.Result result;
+        Lock lock = patients.writeLock();
+        lock.lock();
+        try {
+            result = patientMerger.merge(firebasePatients, complete);
+            applyPatientChanges(result.changes);
+        } finally {
+            lock.unlock();
         }
-        
-        // Add or update from Firebase
-        for (Patient fbPatient : firebasePatients) {
-            patientMap.put(fbPatient.getId(), fbPatient);
+        // Local edits the server hasn't seen won the merge; send them back
+        if (firebaseHelper != null) {
+            for (Patient merged : result.pushBack) firebaseHelper.updatePatient(merged);
         }
-        
-        // Convert back to list
-        patients.clear();
-        patients.addAll(patientMap.values());
-        savePatientsToStorage();
-        Log.d(TAG, "Merged " + patients.size() + " patients from Firebase");
+        schedulePatientsChanged(result.changes);
+        Log.d(TAG, "Merged " + firebasePatients.size() + " patients from Firebase, "
+                + result.changes.size() + " changed");
     }
-    
-    private void mergeUsers(List<User> firebaseUsers) {
-        if (users == null) users = new ArrayList<>();
-        
-        // Create a map of existing users by ID
-        Map<String, User> userMap = new HashMap<>();
-        for (User u : users) {
-            userMap.put(u.getId(), u);
-        }
-        
-        // Add or update from Firebase
-        for (User fbUser : firebaseUsers) {
-            userMap.put(fbUser.getId(), fbUser);
+
+    private void applyRemotePatient(Patient fbPatient) {
+        if (fbPatient == null) return;
+        mergePatients(Collections.singletonList(fbPatient), false);
+    }
+
+    private void applyRemotePatientRemoval(String patientId) {
+        ChangeSet<Patient> changes;
+        Lock lock = patients.writeLock();
+        lock.lock();
+        try {
+            changes = patientMerger.remove(patientId);
+            applyPatientChanges(changes);
+        } finally {
+            lock.unlock();
         }
-        
-        // Convert back to list
-        users.clear();
-        users.addAll(userMap.values());
-        saveUsersToStorage();
-        Log.d(TAG, "Merged " + users.size() + " users from Firebase");
+        if (changes.isEmpty()) return;
+        schedulePatientsChanged(changes); // ✅ Tell UI to refresh
+        Log.d(TAG, "Removed patient deleted in Firebase: " + patientId);
     }
-    
-    public void refreshUsersFromFirebase() {
-    if (firebaseHelper == null) {
-        Log.w(TAG, "FirebaseHelper is null, cannot refresh");
-        return;
+
+    // Brings the derived indexes and the record log in line with a merge. Call under
+    // the patients write lock.
+    private void applyPatientChanges(ChangeSet<Patient> changes) {
+        for (Patient patient : changes.getInserted()) {
+            indexPatient(patient);
+            storePatient(patient);
+        }
+        for (ChangeSet.Update<Patient> update : changes.getUpdated()) {
+            indexPatient(update.after);
+            storePatient(update.after);
+        }
+        for (Patient patient : changes.getRemoved()) {
+            unindexPatient(patient.getId());
+            unstorePatient(patient.getId());
+        }
     }
     
-    Log.d(TAG, "Refreshing users from Firebase...");
-    
-    firebaseHelper.syncUsers(new FirebaseHelper.UsersCallback() {
-        @Override
-        public void onSuccess(List<User> firebaseUsers) {
-            if (firebaseUsers != null && !firebaseUsers.isEmpty()) {
-                Log.d(TAG, "Received " + firebaseUsers.size() + " users from Firebase");
-                
-                // Merge Firebase users with local users
-                mergeUsers(firebaseUsers);
-                
-                // Force update staff list from these users
-                staffList = new ArrayList<>();
-                for (User user : users) {
-                    staffList.add(convertUserToStaff(user));
+    // Package-private so tests can feed in a Firebase user list
+    void mergeUsers(List<User> firebaseUsers) {
+        ChangeSet.Builder<User> changes = new ChangeSet.Builder<>();
+        Lock lock = users.writeLock();
+        lock.lock();
+        try {
+            // Add or update from Firebase; users are few, so compare them whole
+            for (User fbUser : firebaseUsers) {
+                if (fbUser == null || fbUser.getId() == null) continue;
+                User existing = users.get(fbUser.getId());
+                if (existing != null && gson.toJsonTree(existing).equals(gson.toJsonTree(fbUser))) continue;
+                users.put(fbUser);
+                indexUser(fbUser);
+                if (existing == null) {
+                    changes.insert(fbUser);
+                } else {
+                    changes.update(existing, fbUser);
                 }
-                saveStaffToStorage();
-                
-                Log.d(TAG, "Staff list updated from Firebase: " + staffList.size() + " staff members");
-            } else {
-                Log.w(TAG, "No users received from Firebase");
             }
+            if (!changes.isEmpty()) saveUsersToStorage();
+        } finally {
+            lock.unlock();
         }
-        
-        @Override
-        public void onFailure(String error) {
-            Log.e(TAG, "Failed to refresh users: " + error);
-        }
-    });
-}
-    
-    public void refreshPatientsFromFirebase() {
-    if (firebaseHelper == null) {
-        Log.w(TAG, "FirebaseHelper is null, cannot refresh patients");
-        return;
+        ChangeSet<User> changeSet = changes.build();
+        scheduleUsersChanged(changeSet);
+        Log.d(TAG, "Merged " + firebaseUsers.size() + " users from Firebase, " + changeSet.size() + " changed");
     }
     
-    Log.d(TAG, "Refreshing patients from Firebase...");
-    
-    firebaseHelper.syncPatients(new FirebaseHelper.PatientsCallback() {
-        @Override
-        public void onSuccess(List<Patient> firebasePatients) {
-            if (firebasePatients != null && !firebasePatients.isEmpty()) {
-                Log.d(TAG, "Received " + firebasePatients.size() + " patients from Firebase");
-                
-                // Use existing mergePatients method
-                if (patients == null) patients = new ArrayList<>();
-                
-                // Create a map of existing patients by ID
-                java.util.Map<String, Patient> patientMap = new java.util.HashMap<>();
-                for (Patient p : patients) {
-                    patientMap.put(p.getId(), p);
-                }
-                
-                // Add or update from Firebase
-                for (Patient fbPatient : firebasePatients) {
-                    patientMap.put(fbPatient.getId(), fbPatient);
+    public void refreshUsersFromFirebase() {
+        refreshUsersFromFirebase(null);
+    }
+
+    // onComplete runs on the main thread once the users are merged, or the fetch failed
+    public void refreshUsersFromFirebase(Runnable onComplete) {
+        awaitLoaded();
+        if (firebaseHelper == null) {
+            Log.w(TAG, "FirebaseHelper is null, cannot refresh");
+            if (onComplete != null) mainHandler.post(onComplete);
+            return;
+        }
+
+        Log.d(TAG, "Refreshing users from Firebase...");
+
+        firebaseHelper.fetchUsers(new FirebaseHelper.UsersCallback() {
+            @Override
+            public void onSuccess(List<User> firebaseUsers) {
+                if (firebaseUsers != null && !firebaseUsers.isEmpty()) {
+                    Log.d(TAG, "Received " + firebaseUsers.size() + " users from Firebase");
+
+                    // Merge Firebase users with local users; the staff view follows on next read
+                    mergeUsers(firebaseUsers);
+                } else {
+                    Log.w(TAG, "No users received from Firebase");
                 }
-                
-                // Convert back to list
-                patients.clear();
-                patients.addAll(patientMap.values());
-                savePatientsToStorage();
-                
-                Log.d(TAG, "Merged " + patients.size() + " patients from Firebase");
-            } else {
-                Log.d(TAG, "No patients received from Firebase");
+                if (onComplete != null) mainHandler.post(onComplete);
             }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Failed to refresh users: " + error);
+                if (onComplete != null) mainHandler.post(onComplete);
+            }
+        });
+    }
+
+    // Narrows patient sync to what this user may see. Call on login, and with null on
+    // logout. Patients downloaded for the previous user that fall outside the new scope
+    // are dropped; ones never seen on the server are kept until they are pushed.
+    public void setSyncUser(User user) {
+        awaitLoaded();
+        SyncScope scope = SyncScope.forUser(user);
+        if (scope.equals(syncScope)) return;
+        syncScope = scope;
+        Log.d(TAG, "Patient sync scope: " + scope);
+
+        ChangeSet<Patient> changes;
+        Lock lock = patients.writeLock();
+        lock.lock();
+        try {
+            changes = patientMerger.retain(scope::matches);
+            applyPatientChanges(changes);
+        } finally {
+            lock.unlock();
         }
-        
-        @Override
-        public void onFailure(String error) {
-            Log.e(TAG, "Failed to refresh patients: " + error);
-        }
-    });
-}
-    private void updateStaffListFromUsers(List<User> userList) {
-        if (userList == null) return;
-        
-        // Clear existing staff list
-        if (staffList == null) {
-            staffList = new ArrayList<>();
-        } else {
-            staffList.clear();
-        }
-        
-        // Convert each user to staff
-        for (User user : userList) {
-            Staff staff = convertUserToStaff(user);
-            staffList.add(staff);
+        schedulePatientsChanged(changes);
+        if (firebaseHelper != null) subscribePatients();
+    }
+
+    public SyncScope getSyncScope() {
+        return syncScope;
+    }
+
+    public void refreshPatientsFromFirebase() {
+        awaitLoaded();
+        if (firebaseHelper == null) {
+            Log.w(TAG, "FirebaseHelper is null, cannot refresh patients");
+            return;
         }
-        
-        saveStaffToStorage();
-        Log.d(TAG, "Staff list updated from users: " + staffList.size() + " staff members");
+
+        Log.d(TAG, "Refreshing patients from Firebase...");
+
+        firebaseHelper.fetchPatients(syncScope, new FirebaseHelper.PatientsCallback() {
+            @Override
+            public void onSuccess(List<Patient> firebasePatients) {
+                if (firebasePatients != null) {
+                    Log.d(TAG, "Received " + firebasePatients.size() + " patients from Firebase");
+
+                    // Merged even when empty: the server may have deleted the last patient in scope
+                    mergePatients(firebasePatients, true);
+                } else {
+                    Log.d(TAG, "No patients received from Firebase");
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Failed to refresh patients: " + error);
+            }
+        });
     }
-    
+
     private Staff convertUserToStaff(User user) {
-    Log.d(TAG, "Converting user to staff: " + user.getName() + " (" + user.getId() + ")");
-    
     Staff staff = new Staff(
         user.getId(),
         user.getName(),
@@ -355,46 +670,89 @@ public class DataManager {
     
     // ===== USER STORAGE METHODS =====
 
+    // Streams a list from its file; the first time, moves it out of its old SharedPreferences key
+    private <T> List<T> readListFile(RecordListFile<T> file, String legacyKey, Type legacyType) throws IOException {
+        if (!file.exists()) {
+            String json = prefs.getString(legacyKey, null);
+            if (json != null) {
+                List<T> legacy = json.isEmpty() ? null : gson.fromJson(json, legacyType);
+                if (legacy == null) legacy = new ArrayList<>();
+                // Only drop the old key once the file holds everything
+                if (file.writeAll(legacy)) {
+                    prefs.edit().remove(legacyKey).commit();
+                    Log.d(TAG, "Migrated " + legacy.size() + " records from " + legacyKey);
+                }
+                return legacy;
+            }
+        }
+        return file.readAll();
+    }
+
     private void loadOrInitializeUsers() {
+        List<User> stored = null;
         try {
-            String json = prefs.getString(USERS_KEY, null);
-            if (json != null && !json.isEmpty()) {
-                Type listType = new TypeToken<List<User>>() {}.getType();
-                users = gson.fromJson(json, listType);
-                Log.d(TAG, "Loaded " + users.size() + " users from storage");
-            } else {
-                users = new ArrayList<>();
-                Log.d(TAG, "No users found, initialized empty list");
-            }
+            Type listType = new TypeToken<List<User>>() {}.getType();
+            stored = readListFile(usersFile, USERS_KEY, listType);
+            Log.d(TAG, "Loaded " + stored.size() + " users from storage");
         } catch (Exception e) {
             Log.e(TAG, "Error loading users", e);
-            users = new ArrayList<>();
+        }
+        Lock lock = users.writeLock();
+        lock.lock();
+        try {
+            users.replaceAll(stored);
+            rebuildUserIndexes();
+        } finally {
+            lock.unlock();
         }
     }
 
+    private void indexUser(User user) {
+        if (user == null || user.getId() == null) return;
+        if ("asha".equals(user.getRole())) ashaWorkerIds.add(user.getId());
+        else ashaWorkerIds.remove(user.getId());
+        scheduleCountersChanged();
+    }
+
+    private void rebuildUserIndexes() {
+        ashaWorkerIds.clear();
+        for (User user : users) indexUser(user);
+        scheduleCountersChanged();
+    }
+
     private void saveUsersToStorage() {
-        try {
-            String json = gson.toJson(users);
-            prefs.edit().putString(USERS_KEY, json).apply();
-            Log.d(TAG, "Saved " + users.size() + " users to storage");
-        } catch (Exception e) {
-            Log.e(TAG, "Error saving users", e);
-        }
+        persistence.markDirty(USERS_KEY);
     }
 
-    public boolean registerUser(User user) {
-        if (users == null) users = new ArrayList<>();
+    private Runnable snapshotUsers() {
+        final List<User> snapshot = users.snapshot();
+        return () -> {
+            try {
+                if (usersFile.writeAll(snapshot)) {
+                    Log.d(TAG, "Saved " + snapshot.size() + " users to storage");
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving users", e);
+            }
+        };
+    }
 
-        // prevent duplicate ID
-        for (User u : users) {
-            if (u.getId().equals(user.getId())) {
+    public boolean registerUser(User user) {
+        awaitLoaded();
+        Lock lock = users.writeLock();
+        lock.lock();
+        try {
+            // prevent duplicate ID
+            if (!users.add(user)) {
                 Log.w(TAG, "User already exists with ID: " + user.getId());
                 return false;
             }
+            indexUser(user);
+            saveUsersToStorage();
+        } finally {
+            lock.unlock();
         }
-
-        users.add(user);
-        saveUsersToStorage();
+        scheduleUsersChanged(new ChangeSet.Builder<User>().insert(user).build());
         
         // Try to sync to Firebase if available
         if (firebaseHelper != null) {
@@ -446,28 +804,30 @@ public class DataManager {
         }
         
         // Add to staff list
-        if (staffList == null) {
-            staffList = new ArrayList<>();
+        synchronized (staffLock) {
+            if (staffList == null) {
+                staffList = new ArrayList<>();
+            }
+            staffList.add(staff);
         }
-        staffList.add(staff);
         saveStaffToStorage();
     }
 
     // ===== AUTHENTICATION METHOD =====
 
     public User authenticateUser(String userId, String role, String password) {
-        if (users == null || users.isEmpty()) {
+        awaitLoaded();
+        if (users.isEmpty()) {
             Log.d(TAG, "No users in system");
             return null;
         }
 
-        for (User user : users) {
-            if (user.getId().equals(userId)
-                    && user.getRole().equals(role)
-                    && user.getPassword().equals(password)) {
-                Log.d(TAG, "User authenticated: " + user.getName());
-                return user;
-            }
+        User user = users.get(userId);
+        if (user != null
+                && user.getRole().equals(role)
+                && user.getPassword().equals(password)) {
+            Log.d(TAG, "User authenticated: " + user.getName());
+            return user;
         }
 
         Log.d(TAG, "Authentication failed for user: " + userId);
@@ -477,37 +837,175 @@ public class DataManager {
     // ===== PATIENT METHODS =====
 
     private void loadOrInitializePatients() {
+        List<Patient> stored = null;
         try {
+            // One-time migration from the old single-blob preference
             String json = prefs.getString(PATIENTS_KEY, null);
-            if (json != null && !json.isEmpty()) {
-                Type listType = new TypeToken<List<Patient>>() {}.getType();
-                patients = gson.fromJson(json, listType);
-                Log.d(TAG, "Loaded " + patients.size() + " patients from storage");
+            if (json != null) {
+                stored = migrateLegacyPatients(json);
             } else {
-                patients = new ArrayList<>();
-                Log.d(TAG, "No patients found, initialized empty list");
+                stored = patientStore.loadAll();
+                Log.d(TAG, "Loaded " + stored.size() + " patients from storage");
             }
         } catch (Exception e) {
             Log.e(TAG, "Error loading patients", e);
-            patients = new ArrayList<>();
+        }
+        Lock lock = patients.writeLock();
+        lock.lock();
+        try {
+            patients.replaceAll(stored);
+            rebuildPatientIndexes();
+        } finally {
+            lock.unlock();
         }
     }
 
+    private List<Patient> migrateLegacyPatients(String json) {
+        List<Patient> legacy = new ArrayList<>();
+        if (!json.isEmpty()) {
+            Type listType = new TypeToken<List<Patient>>() {}.getType();
+            KeyedList<Patient> parsed = new KeyedList<>(Patient::getId); // one record per ID
+            parsed.replaceAll(gson.fromJson(json, listType));
+            legacy = parsed.snapshot();
+        }
+
+        // Only drop the old key once the log holds everything
+        if (patientStore.replaceAll(legacy)) {
+            prefs.edit().remove(PATIENTS_KEY).apply();
+            Log.d(TAG, "Migrated " + legacy.size() + " patients to record log");
+        } else {
+            Log.w(TAG, "Patient migration failed, will retry on next start");
+        }
+        return legacy;
+    }
+
+    // Full rewrite — only for bulk changes. Single edits go through storePatient/unstorePatient.
     private void savePatientsToStorage() {
+        patientsNeedRewrite = true;
+        dirtyPatientIds.clear();
+        persistence.markDirty(PATIENTS_LOG_FILE);
+    }
+
+    // Every in-memory patient index is updated through these, under the patients write lock
+
+    private void indexPatient(Patient patient) {
+        patientIndex.put(patient);
+        patientSearchIndex.put(patient);
+        patientCounters.put(patient);
+        scheduleCountersChanged();
+    }
+
+    private void unindexPatient(String patientId) {
+        patientIndex.remove(patientId);
+        patientSearchIndex.remove(patientId);
+        patientCounters.remove(patientId);
+        scheduleCountersChanged();
+    }
+
+    private void rebuildPatientIndexes() {
+        List<Patient> all = patients.snapshot();
+        patientIndex.rebuild(all);
+        patientSearchIndex.rebuild(all);
+        patientCounters.rebuild(all);
+        patientVersions.rebuild(all);
+        scheduleCountersChanged();
+    }
+
+    private void storePatient(Patient patient) {
+        if (patient.getId() == null) return;
+        dirtyPatientIds.add(patient.getId());
+        persistence.markDirty(PATIENTS_LOG_FILE);
+    }
+
+    private void unstorePatient(String patientId) {
+        dirtyPatientIds.add(patientId);
+        persistence.markDirty(PATIENTS_LOG_FILE);
+    }
+
+    // Turns everything dirtied since the last flush into one ordered batch of log writes.
+    // A patient edited ten times in the window is appended once, in its latest state.
+    private Runnable snapshotPatientWrites() {
+        Lock lock = patients.writeLock();
+        lock.lock();
         try {
-            String json = gson.toJson(patients);
-            prefs.edit().putString(PATIENTS_KEY, json).apply();
-            Log.d(TAG, "Saved " + patients.size() + " patients to storage");
-        } catch (Exception e) {
-            Log.e(TAG, "Error saving patients", e);
+            return capturePatientWrites();
+        } finally {
+            lock.unlock();
         }
     }
 
+    private Runnable capturePatientWrites() {
+        if (patientsNeedRewrite) {
+            patientsNeedRewrite = false;
+            dirtyPatientIds.clear();
+            final List<Patient> snapshot = patients.snapshot();
+            return () -> {
+                try {
+                    patientStore.replaceAll(snapshot);
+                    Log.d(TAG, "Saved " + snapshot.size() + " patients to storage");
+                } catch (Exception e) {
+                    Log.e(TAG, "Error saving patients", e);
+                }
+            };
+        }
+
+        final List<Patient> puts = new ArrayList<>();
+        final List<String> removals = new ArrayList<>();
+        for (String patientId : dirtyPatientIds) {
+            Patient patient = patients.get(patientId);
+            if (patient != null) {
+                puts.add(patient);
+            } else {
+                removals.add(patientId);
+            }
+        }
+        dirtyPatientIds.clear();
+        return () -> {
+            for (Patient patient : puts) patientStore.put(patient);
+            for (String patientId : removals) patientStore.remove(patientId);
+            Log.d(TAG, "Saved " + puts.size() + " patients, removed " + removals.size());
+        };
+    }
+
+    // ===== PERSISTENCE CONTROL =====
+
+    // How long edits are batched before being written; 0 writes on the next main-loop turn
+    public void setPersistenceFlushWindow(long windowMs) {
+        persistence.setFlushWindow(windowMs);
+    }
+
+    // Hands every pending write to the disk thread now
+    public void flushPendingWrites() {
+        persistence.flushNow();
+    }
+
+    // Flushes, then waits until the disk thread has written everything; false on timeout
+    boolean flushAndWait(long timeoutMs) {
+        persistence.flushNow();
+        return diskWriter.awaitIdle(timeoutMs);
+    }
+
     public boolean addPatient(Patient patient) {
+        awaitLoaded();
         try {
-            if (patients == null) patients = new ArrayList<>();
-            patients.add(patient);
-            savePatientsToStorage();
+            StringPool.canonicalize(patient); // form input shares the pooled village/status/ID strings
+            ChangeSet<Patient> changes;
+            Lock lock = patients.writeLock();
+            lock.lock();
+            try {
+                Patient previous = patients.get(patient.getId());
+                if (previous == patient) previous = patientVersions.copyAsRemembered(patient);
+                patientVersions.stampLocalEdit(patient, previous);
+                patients.put(patient);
+                indexPatient(patient);
+                storePatient(patient);
+                changes = previous != null
+                        ? new ChangeSet.Builder<Patient>().update(previous, patient).build()
+                        : new ChangeSet.Builder<Patient>().insert(patient).build();
+            } finally {
+                lock.unlock();
+            }
+            schedulePatientsChanged(changes);
             
             if (firebaseHelper != null) {
                 firebaseHelper.savePatient(patient);
@@ -522,23 +1020,36 @@ public class DataManager {
     }
 
     public boolean updatePatient(Patient updatedPatient) {
+        awaitLoaded();
         try {
-            if (patients == null) return false;
-
-            for (int i = 0; i < patients.size(); i++) {
-                if (patients.get(i).getId().equals(updatedPatient.getId())) {
-                    patients.set(i, updatedPatient);
-                    savePatientsToStorage();
-                    
-                    if (firebaseHelper != null) {
-                        firebaseHelper.updatePatient(updatedPatient);
-                    }
-                    
-                    Log.d(TAG, "Patient updated successfully: " + updatedPatient.getName());
-                    return true;
-                }
+            StringPool.canonicalize(updatedPatient);
+            ChangeSet<Patient> changes;
+            Lock lock = patients.writeLock();
+            lock.lock();
+            try {
+                Patient existing = patients.get(updatedPatient.getId());
+                if (existing == null) return false;
+                // Edit screens change the stored object itself; rebuild what it held
+                Patient before = existing != updatedPatient
+                        ? existing : patientVersions.copyAsRemembered(existing);
+                // Nothing edited: no index, disk or Firebase traffic
+                if (!patientVersions.stampLocalEdit(updatedPatient, existing)) return true;
+
+                patients.put(updatedPatient);
+                indexPatient(updatedPatient);
+                storePatient(updatedPatient);
+                changes = new ChangeSet.Builder<Patient>().update(before, updatedPatient).build();
+            } finally {
+                lock.unlock();
             }
-            return false;
+            schedulePatientsChanged(changes);
+            
+            if (firebaseHelper != null) {
+                firebaseHelper.updatePatient(updatedPatient);
+            }
+            
+            Log.d(TAG, "Patient updated successfully: " + updatedPatient.getName());
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "Error updating patient", e);
             return false;
@@ -546,23 +1057,29 @@ public class DataManager {
     }
 
     public boolean deletePatient(String patientId) {
+        awaitLoaded();
         try {
-            if (patients == null) return false;
-
-            for (int i = 0; i < patients.size(); i++) {
-                if (patients.get(i).getId().equals(patientId)) {
-                    patients.remove(i);
-                    savePatientsToStorage();
-                    
-                    if (firebaseHelper != null) {
-                        firebaseHelper.deletePatient(patientId);
-                    }
-                    
-                    Log.d(TAG, "Patient deleted successfully: " + patientId);
-                    return true;
-                }
+            Patient removed;
+            Lock lock = patients.writeLock();
+            lock.lock();
+            try {
+                removed = patients.remove(patientId);
+                if (removed == null) return false;
+
+                unindexPatient(patientId);
+                patientVersions.forget(patientId);
+                unstorePatient(patientId);
+            } finally {
+                lock.unlock();
             }
-            return false;
+            schedulePatientsChanged(new ChangeSet.Builder<Patient>().remove(removed).build());
+            
+            if (firebaseHelper != null) {
+                firebaseHelper.deletePatient(patientId);
+            }
+            
+            Log.d(TAG, "Patient deleted successfully: " + patientId);
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "Error deleting patient", e);
             return false;
@@ -570,194 +1087,181 @@ public class DataManager {
     }
 
     public Patient getPatientById(String patientId) {
-        if (patients == null) return null;
-
-        for (Patient patient : patients) {
-            if (patient.getId().equals(patientId)) {
-                return patient;
-            }
-        }
-        return null;
+        awaitLoaded();
+        return patients.get(patientId);
     }
 
+    // getAllPatients/getAllUsers/getAllInventoryItems hand out the shared immutable
+    // snapshot for the current contents; copy it before sorting or editing
     public List<Patient> getAllPatients() {
-        if (patients == null) return new ArrayList<>();
-        return new ArrayList<>(patients);
+        awaitLoaded();
+        return patients.snapshot();
     }
 
-    // Role-based patient queries
-    public List<Patient> getPatientsForASHA(String ashaId) {
-        List<Patient> result = new ArrayList<>();
-        if (patients == null || ashaId == null) return result;
-
-        for (Patient patient : patients) {
-            if (ashaId.equals(patient.getAshaId())) {
-                result.add(patient);
-            }
+    // Runs a query against the patient indexes under the patients read lock
+    private <T> T queryPatients(Supplier<T> query) {
+        Lock lock = patients.readLock();
+        lock.lock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlock();
         }
-        return result;
     }
 
-    public List<Patient> getPatientsForDoctor(String doctorId) {
-        List<Patient> result = new ArrayList<>();
-        if (patients == null || doctorId == null) return result;
+    // Role-based patient queries — answered from patientIndex, not by scanning
+    public List<Patient> getPatientsForASHA(String ashaId) {
+        awaitLoaded();
+        if (ashaId == null) return new ArrayList<>();
+        return queryPatients(() -> patientIndex.getByAsha(ashaId));
+    }
 
-        for (Patient patient : patients) {
-            if (doctorId.equals(patient.getAssignedDoctor())) {
-                result.add(patient);
-            }
+    public List<Patient> getPatientsForDoctor(String doctorId) {
+        awaitLoaded();
+        if (doctorId == null) return new ArrayList<>();
+        return queryPatients(() -> patientIndex.getByDoctor(doctorId));
+    }
+
+    // The same patients the sync scope downloads, answered from the local index
+    public List<Patient> getPatientsInSyncScope() {
+        awaitLoaded();
+        SyncScope scope = syncScope;
+        if (scope.isAll()) return getAllPatients();
+        if (scope.isNone()) return new ArrayList<>();
+        switch (scope.getField()) {
+            case SyncScope.ASHA_ID: return getPatientsForASHA(scope.getValue());
+            case SyncScope.PHC_ID:  return getPatientsForPHC(scope.getValue());
+            default:                return new ArrayList<>();
         }
-        return result;
     }
 
     public List<Patient> getPatientsForPHC(String phcId) {
-        List<Patient> result = new ArrayList<>();
-        if (patients == null || phcId == null) return result;
-
-        for (Patient patient : patients) {
-            if (phcId.equals(patient.getPhcId())) {
-                result.add(patient);
-            }
-        }
-        return result;
+        awaitLoaded();
+        if (phcId == null) return new ArrayList<>();
+        return queryPatients(() -> patientIndex.getByPhc(phcId));
     }
 
     public List<Patient> getHighRiskPatients() {
-        List<Patient> result = new ArrayList<>();
-        if (patients == null) return result;
-
-        for (Patient patient : patients) {
-            if (patient.isHighRisk()) {
-                result.add(patient);
-            }
-        }
-        return result;
+        awaitLoaded();
+        return queryPatients(() -> patientIndex.getHighRisk());
     }
 
     public List<Patient> getHighRiskPatientsForDoctor(String doctorId) {
-        List<Patient> result = new ArrayList<>();
-        if (patients == null || doctorId == null) return result;
-
-        for (Patient patient : patients) {
-            if (patient.isHighRisk() && doctorId.equals(patient.getAssignedDoctor())) {
-                result.add(patient);
-            }
-        }
-        return result;
+        awaitLoaded();
+        if (doctorId == null) return new ArrayList<>();
+        return queryPatients(() -> patientIndex.getHighRiskByDoctor(doctorId));
     }
 
     public List<Patient> getHighRiskPatientsForASHA(String ashaId) {
-        List<Patient> highRiskPatients = new ArrayList<>();
-        if (patients == null || ashaId == null) return highRiskPatients;
-        
-        for (Patient patient : patients) {
-            if (ashaId.equals(patient.getAshaId()) && patient.isHighRisk()) {
-                highRiskPatients.add(patient);
-            }
-        }
-        return highRiskPatients;
+        awaitLoaded();
+        if (ashaId == null) return new ArrayList<>();
+        return queryPatients(() -> patientIndex.getHighRiskByAsha(ashaId));
     }
 
-    public List<Patient> getPregnantPatients() {
-        List<Patient> result = new ArrayList<>();
-        if (patients == null) return result;
+    // Free-text search over name, husband's name, village, phone and age.
+    // Safe to call off the main thread.
+    public List<Patient> searchPatients(String query) {
+        awaitLoaded();
+        if (query == null) return new ArrayList<>();
+        return patientSearchIndex.search(query);
+    }
 
-        for (Patient patient : patients) {
-            if ("pregnant".equals(patient.getPregnancyStatus())) {
-                result.add(patient);
-            }
-        }
-        return result;
+    public List<Patient> getPregnantPatients() {
+        awaitLoaded();
+        return queryPatients(() -> patientIndex.getByStatus("pregnant"));
     }
 
     public List<Patient> getPatientsByStatus(String status) {
-        List<Patient> result = new ArrayList<>();
-        if (patients == null) return result;
-
-        for (Patient patient : patients) {
-            if (status.equals(patient.getPregnancyStatus())) {
-                result.add(patient);
-            }
-        }
-        return result;
+        awaitLoaded();
+        if (status == null) return new ArrayList<>();
+        return queryPatients(() -> patientIndex.getByStatus(status));
     }
 
     // ===== STAFF METHODS =====
 
     private void loadOrInitializeStaff() {
+        List<Staff> stored;
         try {
-            String json = prefs.getString(STAFF_KEY, null);
-            if (json != null && !json.isEmpty()) {
-                Type listType = new TypeToken<List<Staff>>() {}.getType();
-                staffList = gson.fromJson(json, listType);
-                Log.d(TAG, "Loaded " + staffList.size() + " staff from storage");
-            } else {
-                staffList = new ArrayList<>();
-                Log.d(TAG, "No staff found, initialized empty list");
-            }
+            Type listType = new TypeToken<List<Staff>>() {}.getType();
+            stored = new ArrayList<>(readListFile(staffFile, STAFF_KEY, listType));
+            Log.d(TAG, "Loaded " + stored.size() + " staff from storage");
         } catch (Exception e) {
             Log.e(TAG, "Error loading staff", e);
-            staffList = new ArrayList<>();
+            stored = new ArrayList<>();
+        }
+        synchronized (staffLock) {
+            staffList = stored;
         }
     }
 
     private void saveStaffToStorage() {
-        try {
-            String json = gson.toJson(staffList);
-            prefs.edit().putString(STAFF_KEY, json).apply();
-            Log.d(TAG, "Saved " + staffList.size() + " staff to storage");
-        } catch (Exception e) {
-            Log.e(TAG, "Error saving staff", e);
+        persistence.markDirty(STAFF_KEY);
+    }
+
+    private Runnable snapshotStaff() {
+        final List<Staff> snapshot;
+        synchronized (staffLock) {
+            snapshot = new ArrayList<>(staffList);
         }
+        return () -> {
+            try {
+                if (staffFile.writeAll(snapshot)) {
+                    Log.d(TAG, "Saved " + snapshot.size() + " staff to storage");
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving staff", e);
+            }
+        };
     }
 
     public List<User> getAllUsers() {
-        if (users == null) return new ArrayList<>();
-        return new ArrayList<>(users);
+        awaitLoaded();
+        return users.snapshot();
     }
 
+    // One Staff per user, rebuilt only after users change and never written to disk.
+    // The list is shared between callers and cannot be modified; copy it to edit.
     public List<Staff> getStaffList() {
-    // First, make sure users are loaded
-    if (users == null || users.isEmpty()) {
-        Log.w(TAG, "No users found, cannot create staff list");
-        return new ArrayList<>();
-    }
-    
-    // Create fresh staff list from users
-    List<Staff> freshStaffList = new ArrayList<>();
-    for (User user : users) {
-        Staff staff = convertUserToStaff(user);
-        freshStaffList.add(staff);
-        Log.d(TAG, "Added staff: " + user.getName() + " (" + user.getRole() + ")");
+        awaitLoaded();
+        List<User> source = users.snapshot(); // a new instance whenever users change
+        StaffProjection projection = staffProjection;
+        if (projection == null || projection.source != source) {
+            List<Staff> fresh = new ArrayList<>(source.size());
+            for (User user : source) {
+                fresh.add(convertUserToStaff(user));
+            }
+            projection = new StaffProjection(source, Collections.unmodifiableList(fresh));
+            staffProjection = projection;
+            Log.d(TAG, "Staff view rebuilt: " + fresh.size() + " staff members");
+        }
+        return projection.staff;
     }
-    
-    // Update the stored staff list
-    staffList = freshStaffList;
-    saveStaffToStorage();
-    
-    Log.d(TAG, "getStaffList returning " + staffList.size() + " staff members");
-    return new ArrayList<>(staffList);
-}
     public void addStaffMember(Staff staff) {
-        if (staffList == null) staffList = new ArrayList<>();
-        staffList.add(staff);
+        awaitLoaded();
+        synchronized (staffLock) {
+            if (staffList == null) staffList = new ArrayList<>();
+            staffList.add(staff);
+        }
         saveStaffToStorage();
     }
 
     public void updateStaffMember(Staff staff) {
-        if (staffList == null) return;
-        for (int i = 0; i < staffList.size(); i++) {
-            if (staffList.get(i).getId().equals(staff.getId())) {
-                staffList.set(i, staff);
-                saveStaffToStorage();
-                break;
+        awaitLoaded();
+        synchronized (staffLock) {
+            if (staffList == null) return;
+            for (int i = 0; i < staffList.size(); i++) {
+                if (staffList.get(i).getId().equals(staff.getId())) {
+                    staffList.set(i, staff);
+                    saveStaffToStorage();
+                    break;
+                }
             }
         }
     }
 
     public List<User> getASHAWorkers() {
+        awaitLoaded();
         List<User> ashaWorkers = new ArrayList<>();
-        if (users == null) return ashaWorkers;
 
         for (User user : users) {
             if ("asha".equals(user.getRole())) {
@@ -768,8 +1272,8 @@ public class DataManager {
     }
 
     public List<User> getDoctors() {
+        awaitLoaded();
         List<User> doctors = new ArrayList<>();
-        if (users == null) return doctors;
 
         for (User user : users) {
             if ("phcdoctor".equals(user.getRole())) {
@@ -780,52 +1284,74 @@ public class DataManager {
     }
 
     public User getUserById(String userId) {
-        if (users == null) return null;
-        for (User user : users) {
-            if (user.getId().equals(userId)) {
-                return user;
-            }
-        }
-        return null;
+        awaitLoaded();
+        return users.get(userId);
     }
 
     // ===== INVENTORY METHODS =====
 
     private void loadOrInitializeInventory() {
+        List<InventoryItem> stored = null;
         try {
-            String json = prefs.getString(INVENTORY_KEY, null);
-            if (json != null && !json.isEmpty()) {
-                Type listType = new TypeToken<List<InventoryItem>>() {}.getType();
-                inventoryItems = gson.fromJson(json, listType);
-                Log.d(TAG, "Loaded " + inventoryItems.size() + " inventory items from storage");
-            } else {
-                inventoryItems = new ArrayList<>();
-                Log.d(TAG, "No inventory found, initialized empty list");
-            }
+            Type listType = new TypeToken<List<InventoryItem>>() {}.getType();
+            stored = readListFile(inventoryFile, INVENTORY_KEY, listType);
+            Log.d(TAG, "Loaded " + stored.size() + " inventory items from storage");
         } catch (Exception e) {
             Log.e(TAG, "Error loading inventory", e);
-            inventoryItems = new ArrayList<>();
         }
+        Lock lock = inventoryItems.writeLock();
+        lock.lock();
+        try {
+            inventoryItems.replaceAll(stored);
+            rebuildInventoryIndexes();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void indexInventoryItem(InventoryItem item) {
+        if (item == null || item.getId() == null) return;
+        if (item.isLowStock()) lowStockItemIds.add(item.getId());
+        else lowStockItemIds.remove(item.getId());
+        scheduleCountersChanged();
+    }
+
+    private void unindexInventoryItem(String itemId) {
+        lowStockItemIds.remove(itemId);
+        scheduleCountersChanged();
+    }
+
+    private void rebuildInventoryIndexes() {
+        lowStockItemIds.clear();
+        for (InventoryItem item : inventoryItems) indexInventoryItem(item);
+        scheduleCountersChanged();
     }
 
     private void saveInventoryToStorage() {
-        try {
-            String json = gson.toJson(inventoryItems);
-            prefs.edit().putString(INVENTORY_KEY, json).apply();
-            Log.d(TAG, "Saved " + inventoryItems.size() + " inventory items to storage");
-        } catch (Exception e) {
-            Log.e(TAG, "Error saving inventory", e);
-        }
+        persistence.markDirty(INVENTORY_KEY);
+    }
+
+    private Runnable snapshotInventory() {
+        final List<InventoryItem> snapshot = inventoryItems.snapshot();
+        return () -> {
+            try {
+                if (inventoryFile.writeAll(snapshot)) {
+                    Log.d(TAG, "Saved " + snapshot.size() + " inventory items to storage");
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving inventory", e);
+            }
+        };
     }
 
     public List<InventoryItem> getAllInventoryItems() {
-        if (inventoryItems == null) return new ArrayList<>();
-        return new ArrayList<>(inventoryItems);
+        awaitLoaded();
+        return inventoryItems.snapshot();
     }
 
     public List<InventoryItem> getLowStockItems() {
+        awaitLoaded();
         List<InventoryItem> lowStock = new ArrayList<>();
-        if (inventoryItems == null) return lowStock;
 
         for (InventoryItem item : inventoryItems) {
             if (item.isLowStock()) {
@@ -836,10 +1362,21 @@ public class DataManager {
     }
 
     public boolean addInventoryItem(InventoryItem item) {
+        awaitLoaded();
         try {
-            if (inventoryItems == null) inventoryItems = new ArrayList<>();
-            inventoryItems.add(item);
-            saveInventoryToStorage();
+            InventoryItem previous;
+            Lock lock = inventoryItems.writeLock();
+            lock.lock();
+            try {
+                previous = inventoryItems.put(item);
+                indexInventoryItem(item);
+                saveInventoryToStorage();
+            } finally {
+                lock.unlock();
+            }
+            scheduleInventoryChanged(previous != null
+                    ? new ChangeSet.Builder<InventoryItem>().update(previous, item).build()
+                    : new ChangeSet.Builder<InventoryItem>().insert(item).build());
             Log.d(TAG, "Inventory item added: " + item.getName());
             return true;
         } catch (Exception e) {
@@ -849,17 +1386,24 @@ public class DataManager {
     }
 
     public boolean updateInventoryItem(InventoryItem updatedItem) {
+        awaitLoaded();
         try {
-            if (inventoryItems == null) return false;
-            for (int i = 0; i < inventoryItems.size(); i++) {
-                if (inventoryItems.get(i).getId().equals(updatedItem.getId())) {
-                    inventoryItems.set(i, updatedItem);
-                    saveInventoryToStorage();
-                    Log.d(TAG, "Inventory item updated: " + updatedItem.getName());
-                    return true;
-                }
+            InventoryItem existing;
+            Lock lock = inventoryItems.writeLock();
+            lock.lock();
+            try {
+                existing = inventoryItems.get(updatedItem.getId());
+                if (existing == null) return false;
+
+                inventoryItems.put(updatedItem);
+                indexInventoryItem(updatedItem);
+                saveInventoryToStorage();
+            } finally {
+                lock.unlock();
             }
-            return false;
+            scheduleInventoryChanged(new ChangeSet.Builder<InventoryItem>().update(existing, updatedItem).build());
+            Log.d(TAG, "Inventory item updated: " + updatedItem.getName());
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "Error updating inventory item", e);
             return false;
@@ -867,18 +1411,23 @@ public class DataManager {
     }
 
     public boolean deleteInventoryItem(String itemId) {
+        awaitLoaded();
         try {
-            if (inventoryItems == null) return false;
-            
-            for (int i = 0; i < inventoryItems.size(); i++) {
-                if (inventoryItems.get(i).getId().equals(itemId)) {
-                    inventoryItems.remove(i);
-                    saveInventoryToStorage();
-                    Log.d(TAG, "Inventory item deleted: " + itemId);
-                    return true;
-                }
+            InventoryItem removed;
+            Lock lock = inventoryItems.writeLock();
+            lock.lock();
+            try {
+                removed = inventoryItems.remove(itemId);
+                if (removed == null) return false;
+                unindexInventoryItem(itemId);
+
+                saveInventoryToStorage();
+            } finally {
+                lock.unlock();
             }
-            return false;
+            scheduleInventoryChanged(new ChangeSet.Builder<InventoryItem>().remove(removed).build());
+            Log.d(TAG, "Inventory item deleted: " + itemId);
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "Error deleting inventory item", e);
             return false;
@@ -886,16 +1435,16 @@ public class DataManager {
     }
 
     public InventoryItem getInventoryItemById(String itemId) {
-        if (inventoryItems == null || itemId == null) {
-            Log.w(TAG, "Inventory items list is null or itemId is null");
+        awaitLoaded();
+        if (itemId == null) {
+            Log.w(TAG, "itemId is null");
             return null;
         }
         
-        for (InventoryItem item : inventoryItems) {
-            if (item.getId() != null && item.getId().equals(itemId)) {
-                Log.d(TAG, "Found inventory item: " + item.getName() + " with ID: " + itemId);
-                return item;
-            }
+        InventoryItem item = inventoryItems.get(itemId);
+        if (item != null) {
+            Log.d(TAG, "Found inventory item: " + item.getName() + " with ID: " + itemId);
+            return item;
         }
         
         Log.w(TAG, "Inventory item not found with ID: " + itemId);
@@ -921,20 +1470,31 @@ public class DataManager {
     }
 
     private void saveFinancialToStorage() {
-        try {
-            String json = gson.toJson(financialData);
-            prefs.edit().putString(FINANCIAL_KEY, json).apply();
-        } catch (Exception e) {
-            Log.e(TAG, "Error saving financial data", e);
-        }
+        persistence.markDirty(FINANCIAL_KEY);
+    }
+
+    private Runnable snapshotFinancial() {
+        final FinancialData snapshot = financialData;
+        return () -> {
+            try {
+                String json = gson.toJson(snapshot);
+                prefs.edit().putString(FINANCIAL_KEY, json).commit();
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving financial data", e);
+            }
+        };
     }
 
     public void saveFinancialData(FinancialData data) {
+        awaitLoaded();
+        FinancialData before = this.financialData;
         this.financialData = data;
         saveFinancialToStorage();
+        scheduleFinancialChanged(before, data);
     }
 
     public FinancialData getFinancialData() {
+        awaitLoaded();
         if (financialData == null) {
             financialData = new FinancialData();
         }
@@ -942,6 +1502,7 @@ public class DataManager {
     }
 
     public boolean updateBudgetCategory(String categoryKey, double spent) {
+        awaitLoaded();
         try {
             if (financialData != null && financialData.getCategoryBudgets() != null) {
                 FinancialData.CategoryBudget category = financialData.getCategoryBudgets().get(categoryKey);
@@ -950,6 +1511,7 @@ public class DataManager {
                     category.setPercentage((spent / category.getAllocated()) * 100);
                     updateOverallBudgetUtilization();
                     saveFinancialToStorage();
+                    scheduleFinancialChanged(financialData, financialData);
                     return true;
                 }
             }
@@ -982,58 +1544,180 @@ public class DataManager {
     // ===== UTILITY METHODS =====
 
     public int getPatientCountForUser(User user) {
-        if (user == null || patients == null) return 0;
+        awaitLoaded();
+        if (user == null) return 0;
 
         switch (user.getRole()) {
             case "asha":
-                return getPatientsForASHA(user.getId()).size();
+                return queryPatients(() -> patientIndex.countByAsha(user.getId()));
             case "phcdoctor":
-                return getPatientsForDoctor(user.getId()).size();
+                return queryPatients(() -> patientIndex.countByDoctor(user.getId()));
             default:
                 return patients.size();
         }
     }
 
+    // Patient counts (total, high-risk, pregnant, referred...) for every ASHA at once.
+    // The map is cached and shared until the patient set changes; ASHAs with no
+    // patients are absent, so look up with getOrDefault(id, PatientAnalytics.EMPTY).
+    public Map<String, PatientAnalytics> getPatientCountsByAsha() {
+        awaitLoaded();
+        return queryPatients(patientCounters::getByAsha);
+    }
+
+    // O(1): read from counters maintained on every mutation, never by scanning
+    public DashboardCounters getDashboardCounters(User user) {
+        awaitLoaded();
+        PatientAnalytics all;
+        PatientAnalytics scoped;
+        Lock lock = patients.readLock();
+        lock.lock();
+        try {
+            all = patientCounters.getAll();
+            scoped = all;
+            if (user != null && "asha".equals(user.getRole())) {
+                scoped = patientCounters.getForAsha(user.getId());
+            } else if (user != null && "phcdoctor".equals(user.getRole())) {
+                scoped = patientCounters.getForDoctor(user.getId());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        int lowStock;
+        int inventoryCount;
+        lock = inventoryItems.readLock();
+        lock.lock();
+        try {
+            lowStock = lowStockItemIds.size();
+            inventoryCount = inventoryItems.size();
+        } finally {
+            lock.unlock();
+        }
+
+        int ashaCount;
+        int userCount;
+        lock = users.readLock();
+        lock.lock();
+        try {
+            ashaCount = ashaWorkerIds.size();
+            userCount = users.size();
+        } finally {
+            lock.unlock();
+        }
+        return new DashboardCounters(scoped, all, lowStock, inventoryCount, ashaCount, userCount);
+    }
+
     public void clearAllPatients() {
-        patients = new ArrayList<>();
-        savePatientsToStorage();
+        awaitLoaded();
+        ChangeSet.Builder<Patient> changes = new ChangeSet.Builder<>();
+        Lock lock = patients.writeLock();
+        lock.lock();
+        try {
+            for (Patient patient : patients) changes.remove(patient);
+            patients.clear();
+            rebuildPatientIndexes();
+            savePatientsToStorage();
+        } finally {
+            lock.unlock();
+        }
+        schedulePatientsChanged(changes.build());
     }
 
     public void resetToEmpty() {
-        users = new ArrayList<>();
-        patients = new ArrayList<>();
-        inventoryItems = new ArrayList<>();
-        staffList = new ArrayList<>();
-        financialData = new FinancialData();
-        
-        saveUsersToStorage();
-        savePatientsToStorage();
-        saveInventoryToStorage();
-        saveStaffToStorage();
-        saveFinancialToStorage();
+        awaitLoaded();
+        ChangeSet.Builder<User> userChanges = new ChangeSet.Builder<>();
+        ChangeSet.Builder<Patient> patientChanges = new ChangeSet.Builder<>();
+        ChangeSet.Builder<InventoryItem> inventoryChanges = new ChangeSet.Builder<>();
+        FinancialData financialBefore = financialData;
+        Lock usersLock = users.writeLock();
+        Lock patientsLock = patients.writeLock();
+        Lock inventoryLock = inventoryItems.writeLock();
+        usersLock.lock();
+        patientsLock.lock();
+        inventoryLock.lock();
+        try {
+            for (User user : users) userChanges.remove(user);
+            for (Patient patient : patients) patientChanges.remove(patient);
+            for (InventoryItem item : inventoryItems) inventoryChanges.remove(item);
+            users.clear();
+            patients.clear();
+            patientMerger.clear();
+            rebuildPatientIndexes();
+            rebuildUserIndexes();
+            inventoryItems.clear();
+            rebuildInventoryIndexes();
+            synchronized (staffLock) {
+                staffList = new ArrayList<>();
+            }
+            financialData = new FinancialData();
+
+            saveUsersToStorage();
+            savePatientsToStorage();
+            saveInventoryToStorage();
+            saveStaffToStorage();
+            saveFinancialToStorage();
+        } finally {
+            inventoryLock.unlock();
+            patientsLock.unlock();
+            usersLock.unlock();
+        }
+        scheduleUsersChanged(userChanges.build());
+        schedulePatientsChanged(patientChanges.build());
+        scheduleInventoryChanged(inventoryChanges.build());
+        scheduleFinancialChanged(financialBefore, financialData);
         
         Log.d(TAG, "All data reset to empty");
     }
 
+    // Patient writes the server hasn't confirmed yet: queue depth and lag; null without Firebase
+    public SyncOutbox.Stats getSyncStats() {
+        return firebaseHelper != null ? firebaseHelper.getOutboxStats() : null;
+    }
+
     public String getStorageInfo() {
-        return "Users: " + (users != null ? users.size() : 0) +
-               ", Patients: " + (patients != null ? patients.size() : 0) +
-               ", Inventory: " + (inventoryItems != null ? inventoryItems.size() : 0) +
-               ", Staff: " + (staffList != null ? staffList.size() : 0);
+        return "Users: " + users.size() +
+               ", Patients: " + patients.size() +
+               ", Inventory: " + inventoryItems.size() +
+               ", Staff: " + staffCount();
+    }
+
+    private int staffCount() {
+        synchronized (staffLock) {
+            return staffList != null ? staffList.size() : 0;
+        }
     }
 
     public void refreshInventoryFromStorage() {
-        loadOrInitializeInventory();
-        Log.d(TAG, "Inventory refreshed from storage: " + (inventoryItems != null ? inventoryItems.size() : 0) + " items");
+        refreshInventoryFromStorage(null);
+    }
+
+    // Rereads inventory on the disk thread, after any pending writes; onComplete then runs on
+    // the main thread
+    public void refreshInventoryFromStorage(Runnable onComplete) {
+        persistence.flushNow(); // queued ahead of the read, so it never sees older data than we hold
+        diskWriter.execute(() -> {
+            loadOrInitializeInventory();
+            Log.d(TAG, "Inventory refreshed from storage: " + inventoryItems.size() + " items");
+            if (onComplete != null) mainHandler.post(onComplete);
+        });
     }
 
     public void refreshAllFromStorage() {
-        loadOrInitializeUsers();
-        loadOrInitializePatients();
-        loadOrInitializeInventory();
-        loadOrInitializeStaff();
-        loadOrInitializeFinancial();
-        Log.d(TAG, "All data refreshed. " + getStorageInfo());
+        refreshAllFromStorage(null);
+    }
+
+    public void refreshAllFromStorage(Runnable onComplete) {
+        persistence.flushNow();
+        diskWriter.execute(() -> {
+            loadOrInitializeUsers();
+            loadOrInitializePatients();
+            loadOrInitializeInventory();
+            loadOrInitializeStaff();
+            loadOrInitializeFinancial();
+            Log.d(TAG, "All data refreshed. " + getStorageInfo());
+            if (onComplete != null) mainHandler.post(onComplete);
+        });
     }
 
     // Placeholder methods
@@ -0,0 +1,30 @@
+package com.macrovision.sihasha.utils;
+
+import android.util.Log;
+
+import com.macrovision.sihasha.BuildConfig;
+
+/**
+ * Debug-only logging for hot paths such as RecyclerView binds and scroll callbacks.
+ *
+ * ENABLED is a compile-time constant (BuildConfig.DEBUG), so javac drops any
+ * block guarded by it from release builds, message building included:
+ *
+ *     if (DebugLog.ENABLED) DebugLog.d(TAG, "Bound " + patient.getId());
+ *
+ * Unguarded calls still skip the Log call in release but pay for their arguments.
+ */
+public final class DebugLog {
+
+    public static final boolean ENABLED = BuildConfig.DEBUG;
+
+    private DebugLog() {}
+
+    public static void d(String tag, String message) {
+        if (ENABLED) Log.d(tag, message);
+    }
+
+    public static void v(String tag, String message) {
+        if (ENABLED) Log.v(tag, message);
+    }
+}
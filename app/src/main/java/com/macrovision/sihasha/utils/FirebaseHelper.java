@@ -1,6 +1,8 @@
 package com.macrovision.sihasha.utils;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -9,27 +11,53 @@ import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.AuthResult;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
 import com.google.firebase.database.ValueEventListener;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.macrovision.sihasha.models.Patient;
 import com.macrovision.sihasha.models.User;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class FirebaseHelper {
     private static final String TAG = "FirebaseHelper";
+    private static final String OUTBOX_FILE = "firebase_outbox.json";
+    // Writes per multi-path update
+    private static final int OUTBOX_BATCH_SIZE = 100;
+    // Edits made within this long of each other go out in one update
+    private static final long OUTBOX_COALESCE_MS = 250;
     
     private FirebaseAuth mAuth;
     private DatabaseReference mDatabase;
     private Context context;
     
-    // Listeners to keep track
-    private ValueEventListener patientsListener;
-    private ValueEventListener usersListener;
+    // One live listener per node (per patient query), shared by every subscriber
+    private final Map<SyncScope, PatientsNode> patientNodes = new HashMap<>();
+    private final UsersNode usersNode = new UsersNode();
+
+    // Patient writes not yet confirmed by the server, saved to disk on every change
+    private SyncOutbox<Patient> outbox;
+    private RecordListFile<SyncOutbox.Entry<Patient>> outboxFile;
+    private final BackgroundWriter outboxWriter = new BackgroundWriter("FirebaseHelper-outbox");
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable outboxFlusher = this::flushOutbox;
     
     // Singleton instance
     private static FirebaseHelper instance;
@@ -38,6 +66,7 @@ public class FirebaseHelper {
         this.context = context.getApplicationContext();
         this.mAuth = FirebaseAuth.getInstance();
         this.mDatabase = FirebaseDatabase.getInstance().getReference();
+        startOutbox();
     }
     
     public static synchronized FirebaseHelper getInstance(Context context) {
@@ -65,7 +94,7 @@ public class FirebaseHelper {
                     mDatabase.child("users").child(userId).get()
                         .addOnCompleteListener(userTask -> {
                             if (userTask.isSuccessful() && userTask.getResult().exists()) {
-                                User user = userTask.getResult().getValue(User.class);
+                                User user = StringPool.canonicalize(userTask.getResult().getValue(User.class));
                                 callback.onSuccess(user);
                             } else {
                                 callback.onFailure("User data not found in database");
@@ -104,69 +133,224 @@ public class FirebaseHelper {
         void onSuccess(List<Patient> patients);
         void onFailure(String error);
     }
-    
-    public void syncPatients(PatientsCallback callback) {
-        // Remove existing listener if any
-        if (patientsListener != null) {
-            mDatabase.child("patients").removeEventListener(patientsListener);
+
+    // Patient queries are filtered on the server, so a device downloads only the scope's
+    // patients. Needs ".indexOn": ["ashaId", "phcId"] on /patients in the database
+    // rules; without it the server sends the whole node and filters here.
+    private Query patientsQuery(SyncScope scope) {
+        DatabaseReference patients = mDatabase.child("patients");
+        if (scope.getField() == null) return patients;
+        return patients.orderByChild(scope.getField()).equalTo(scope.getValue());
+    }
+
+    private synchronized PatientsNode patientsNode(SyncScope scope) {
+        PatientsNode node = patientNodes.get(scope);
+        if (node == null) {
+            node = new PatientsNode(scope);
+            patientNodes.put(scope, node);
         }
-        
-        patientsListener = new ValueEventListener() {
+        return node;
+    }
+
+    // One-shot copy of every patient in the scope. Served from the live subscription's
+    // cache when there is one; otherwise read once, without staying subscribed.
+    public void fetchPatients(SyncScope scope, PatientsCallback callback) {
+        if (scope.isNone()) {
+            callback.onSuccess(new ArrayList<>());
+            return;
+        }
+        PatientsNode node = patientsNode(scope);
+        if (node.whenLoaded(() -> callback.onSuccess(node.cachedPatients()), callback::onFailure)) return;
+
+        patientsQuery(scope).addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
                 List<Patient> patients = new ArrayList<>();
                 for (DataSnapshot patientSnapshot : snapshot.getChildren()) {
-                    Patient patient = patientSnapshot.getValue(Patient.class);
-                    if (patient != null) {
-                        patients.add(patient);
-                        Log.d(TAG, "Patient from Firebase: " + patient.getName());
-                    }
+                    Patient patient = parsePatient(patientSnapshot);
+                    if (patient != null) patients.add(patient);
                 }
-                Log.d(TAG, "Synced " + patients.size() + " patients from Firebase");
+                Log.d(TAG, "Fetched " + patients.size() + " patients (" + scope + ") from Firebase");
                 callback.onSuccess(patients);
             }
-            
+
             @Override
             public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Patient sync cancelled: " + error.getMessage());
+                Log.e(TAG, "Patient fetch cancelled: " + error.getMessage());
                 callback.onFailure(error.getMessage());
             }
-        };
-        
-        mDatabase.child("patients").addValueEventListener(patientsListener);
+        });
+    }
+    
+    // Delta sync: one callback per added/changed/removed patient instead of the whole node
+    public interface PatientChangesCallback {
+        void onPatientUpserted(Patient patient);
+        void onPatientRemoved(String patientId);
+        void onFailure(String error);
+    }
+
+    // A new subscriber first receives every patient in the scope already loaded, then the
+    // changes. A patient edited out of the scope arrives as removed.
+    public Subscription subscribePatientChanges(SyncScope scope, PatientChangesCallback callback) {
+        if (scope.isNone()) return () -> { };
+        return patientsNode(scope).subscribe(callback);
+    }
+
+    private static Patient parsePatient(DataSnapshot snapshot) {
+        Patient patient = StringPool.canonicalize(snapshot.getValue(Patient.class));
+        if (patient != null && patient.getId() == null) patient.setId(snapshot.getKey());
+        return patient;
     }
     
+    // Writes go through the outbox: they are kept on disk until the server confirms
+    // them, and sent in batches as soon as there is a connection
     public void savePatient(Patient patient) {
-        mDatabase.child("patients").child(patient.getId()).setValue(patient)
-            .addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    Log.d(TAG, "Patient saved to Firebase: " + patient.getName());
-                } else {
-                    Log.e(TAG, "Failed to save patient", task.getException());
-                }
-            });
+        enqueueWrite("patients/" + patient.getId(), patient);
     }
     
     public void updatePatient(Patient patient) {
-        mDatabase.child("patients").child(patient.getId()).setValue(patient)
-            .addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    Log.d(TAG, "Patient updated in Firebase: " + patient.getName());
-                } else {
-                    Log.e(TAG, "Failed to update patient", task.getException());
-                }
-            });
+        enqueueWrite("patients/" + patient.getId(), patient);
     }
     
     public void deletePatient(String patientId) {
-        mDatabase.child("patients").child(patientId).removeValue()
-            .addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    Log.d(TAG, "Patient deleted from Firebase: " + patientId);
-                } else {
-                    Log.e(TAG, "Failed to delete patient", task.getException());
+        enqueueWrite("patients/" + patientId, null);
+    }
+
+    // ===== OUTBOX =====
+
+    private void startOutbox() {
+        TypeAdapter<Patient> patientAdapter = ModelTypeAdapters.register(new GsonBuilder()).create()
+                .getAdapter(Patient.class);
+        outboxFile = new RecordListFile<>(new File(context.getFilesDir(), OUTBOX_FILE),
+                new OutboxEntryAdapter(patientAdapter), null, false);
+        outbox = new SyncOutbox<>(entries ->
+                outboxWriter.enqueueLatest(OUTBOX_FILE, () -> outboxFile.writeAll(entries)));
+
+        // Runs before any save is queued, so it reads what the last process left
+        outboxWriter.execute(() -> {
+            try {
+                List<SyncOutbox.Entry<Patient>> saved = outboxFile.readAll();
+                if (!saved.isEmpty()) {
+                    outbox.restore(saved);
+                    Log.d(TAG, "Restored " + saved.size() + " unsent writes");
                 }
-            });
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading outbox", e);
+            }
+            mainHandler.post(outboxFlusher);
+        });
+
+        // Reconnecting ends any backoff: the batch goes out while the connection lasts
+        FirebaseDatabase.getInstance().getReference(".info/connected")
+                .addValueEventListener(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        if (Boolean.TRUE.equals(snapshot.getValue(Boolean.class))) {
+                            outbox.retryNow();
+                            flushOutbox();
+                        }
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.w(TAG, "Connection state unavailable: " + error.getMessage());
+                    }
+                });
+    }
+
+    private void enqueueWrite(String path, Patient value) {
+        outbox.put(path, value);
+        mainHandler.removeCallbacks(outboxFlusher);
+        mainHandler.postDelayed(outboxFlusher, OUTBOX_COALESCE_MS);
+    }
+
+    // Sends the next batch as one multi-path update. One batch is in flight at a time;
+    // its completion sends the next. Offline, the update waits in the Firebase client
+    // and completes on reconnect; the outbox copy covers the process dying meanwhile.
+    private void flushOutbox() {
+        mainHandler.removeCallbacks(outboxFlusher);
+        Map<String, Patient> batch = outbox.takeBatch(OUTBOX_BATCH_SIZE);
+        if (batch == null) {
+            long delay = outbox.retryDelayMs();
+            if (delay > 0) mainHandler.postDelayed(outboxFlusher, delay);
+            return;
+        }
+
+        Map<String, Object> updates = new HashMap<>(batch); // null values delete
+        Task<Void> write;
+        try {
+            write = mDatabase.updateChildren(updates);
+        } catch (RuntimeException e) {
+            // Refused before sending (invalid key, unserializable value); no retry can fix it
+            SyncOutbox.Entry<Patient> dropped = outbox.onBatchRejected(e.getMessage());
+            if (dropped != null) {
+                Log.e(TAG, "Dropped write Firebase refuses: " + dropped.path, e);
+            } else {
+                Log.w(TAG, "Batch of " + batch.size() + " writes refused, resending one at a time", e);
+            }
+            mainHandler.post(outboxFlusher);
+            return;
+        }
+        write.addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                outbox.onBatchSucceeded();
+                Log.d(TAG, "Sent " + batch.size() + " writes to Firebase (" + outbox.getStats() + ")");
+            } else {
+                String error = task.getException() != null ? task.getException().getMessage() : "unknown error";
+                outbox.onBatchFailed(error);
+                Log.w(TAG, "Batch of " + batch.size() + " writes failed, retrying in "
+                        + outbox.retryDelayMs() + " ms: " + error);
+            }
+            flushOutbox();
+        });
+    }
+
+    // Queue depth and how far behind the server this device is
+    public SyncOutbox.Stats getOutboxStats() {
+        return outbox.getStats();
+    }
+
+    // {"path": ..., "enqueuedAt": ..., "value": patient or absent for a delete}
+    private static final class OutboxEntryAdapter extends TypeAdapter<SyncOutbox.Entry<Patient>> {
+        private final TypeAdapter<Patient> patientAdapter;
+
+        OutboxEntryAdapter(TypeAdapter<Patient> patientAdapter) {
+            this.patientAdapter = patientAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, SyncOutbox.Entry<Patient> entry) throws IOException {
+            out.beginObject();
+            out.name("path").value(entry.path);
+            out.name("enqueuedAt").value(entry.enqueuedAt);
+            if (entry.value != null) {
+                out.name("value");
+                patientAdapter.write(out, entry.value);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public SyncOutbox.Entry<Patient> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String path = null;
+            long enqueuedAt = 0;
+            Patient value = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "path":       path = in.nextString(); break;
+                    case "enqueuedAt": enqueuedAt = in.nextLong(); break;
+                    case "value":      value = patientAdapter.read(in); break;
+                    default:           in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return new SyncOutbox.Entry<>(path, value, enqueuedAt);
+        }
     }
     
     // ===== USER SYNC =====
@@ -175,35 +359,345 @@ public class FirebaseHelper {
         void onSuccess(List<User> users);
         void onFailure(String error);
     }
-    
-    public void syncUsers(UsersCallback callback) {
-        // Remove existing listener if any
-        if (usersListener != null) {
-            mDatabase.child("users").removeEventListener(usersListener);
-        }
-        
-        usersListener = new ValueEventListener() {
+
+    // Live copy of the users node: the current list on subscribing, then again on every change
+    public Subscription subscribeUsers(UsersCallback callback) {
+        return usersNode.subscribe(callback);
+    }
+
+    // One-shot copy of the users node. Served from the live subscription's last
+    // snapshot when there is one; otherwise read once, without staying subscribed.
+    public void fetchUsers(UsersCallback callback) {
+        if (usersNode.whenLoaded(() -> callback.onSuccess(parseUsers(usersNode.cachedSnapshot())),
+                callback::onFailure)) return;
+
+        mDatabase.child("users").addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                List<User> users = new ArrayList<>();
-                for (DataSnapshot userSnapshot : snapshot.getChildren()) {
-                    User user = userSnapshot.getValue(User.class);
-                    if (user != null) {
-                        users.add(user);
-                    }
+                List<User> users = parseUsers(snapshot);
+                Log.d(TAG, "Fetched " + users.size() + " users from Firebase");
+                callback.onSuccess(users);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "User fetch cancelled: " + error.getMessage());
+                callback.onFailure(error.getMessage());
+            }
+        });
+    }
+
+    private static List<User> parseUsers(DataSnapshot snapshot) {
+        List<User> users = new ArrayList<>();
+        if (snapshot == null) return users;
+        for (DataSnapshot userSnapshot : snapshot.getChildren()) {
+            User user = StringPool.canonicalize(userSnapshot.getValue(User.class));
+            if (user != null) users.add(user);
+        }
+        return users;
+    }
+
+    // ===== SUBSCRIPTIONS =====
+
+    public interface Subscription {
+        void cancel();
+    }
+
+    // Reference-counted live listener on one node. The first subscriber attaches the
+    // Firebase listener, later ones share it and are replayed what is already loaded,
+    // and the last cancel detaches it. Callbacks run outside the lock.
+    private abstract class LiveNode<C> {
+        final String name;
+        final List<C> subscribers = new CopyOnWriteArrayList<>();
+        // One-shot fetches waiting for the first load to finish
+        private final List<PendingFetch> waitingFetches = new ArrayList<>();
+        private boolean loaded;
+
+        private final class PendingFetch {
+            final Runnable onLoaded;
+            final Consumer<String> onFailure;
+
+            PendingFetch(Runnable onLoaded, Consumer<String> onFailure) {
+                this.onLoaded = onLoaded;
+                this.onFailure = onFailure;
+            }
+        }
+
+        LiveNode(String name) {
+            this.name = name;
+        }
+
+        Subscription subscribe(C callback) {
+            boolean first;
+            boolean replay;
+            synchronized (this) {
+                subscribers.add(callback);
+                first = subscribers.size() == 1;
+                replay = !first && loaded;
+            }
+            if (first) {
+                attach(query());
+                Log.d(TAG, "Subscribed to " + name);
+            } else if (replay) {
+                replay(callback);
+            }
+            return () -> unsubscribe(callback);
+        }
+
+        private void unsubscribe(C callback) {
+            List<PendingFetch> abandoned;
+            synchronized (this) {
+                if (!subscribers.remove(callback) || !subscribers.isEmpty()) return;
+                abandoned = reset();
+            }
+            detach(query());
+            failAll(abandoned);
+            Log.d(TAG, "Unsubscribed from " + name);
+        }
+
+        void cancelAll() {
+            List<PendingFetch> abandoned;
+            synchronized (this) {
+                if (subscribers.isEmpty()) return;
+                subscribers.clear();
+                abandoned = reset();
+            }
+            detach(query());
+            failAll(abandoned);
+        }
+
+        // Caller holds the lock; returns the fetches that will now never be loaded
+        private List<PendingFetch> reset() {
+            loaded = false;
+            clearCache();
+            List<PendingFetch> abandoned = new ArrayList<>(waitingFetches);
+            waitingFetches.clear();
+            return abandoned;
+        }
+
+        private void failAll(List<PendingFetch> abandoned) {
+            for (PendingFetch fetch : abandoned) fetch.onFailure.accept("Unsubscribed from " + name + " before it loaded");
+        }
+
+        // Runs the fetch against the live cache, at once or after the first load, and
+        // returns true; returns false when nothing is subscribed to this node. onFailure
+        // runs instead if the last subscriber leaves before the first load finishes.
+        boolean whenLoaded(Runnable fetch, Consumer<String> onFailure) {
+            synchronized (this) {
+                if (subscribers.isEmpty()) return false;
+                if (!loaded) {
+                    waitingFetches.add(new PendingFetch(fetch, onFailure));
+                    return true;
+                }
+            }
+            fetch.run();
+            return true;
+        }
+
+        // Called by the listener once the cache holds the whole node
+        void markLoaded() {
+            List<PendingFetch> fetches;
+            synchronized (this) {
+                if (subscribers.isEmpty()) return; // cancelled while loading
+                loaded = true;
+                fetches = new ArrayList<>(waitingFetches);
+                waitingFetches.clear();
+            }
+            for (PendingFetch fetch : fetches) fetch.onLoaded.run();
+        }
+
+        abstract Query query();
+        abstract void attach(Query query);
+        abstract void detach(Query query);
+        abstract void replay(C callback);
+        abstract void clearCache();
+    }
+
+    // Child events, so a change to one patient downloads only that patient
+    private final class PatientsNode extends LiveNode<PatientChangesCallback> {
+        private final Map<String, DataSnapshot> children = new LinkedHashMap<>();
+
+        private final ChildEventListener listener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                upsert(snapshot);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                upsert(snapshot);
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                synchronized (PatientsNode.this) {
+                    children.remove(snapshot.getKey());
                 }
+                Log.d(TAG, "Patient removed in Firebase: " + snapshot.getKey());
+                for (PatientChangesCallback callback : subscribers) callback.onPatientRemoved(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+                // Ordering is not used locally
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Patient change sync cancelled: " + error.getMessage());
+                for (PatientChangesCallback callback : subscribers) callback.onFailure(error.getMessage());
+            }
+        };
+
+        // Child events carry no "initial load done" signal. A value event queued behind
+        // them fires once they have all arrived, and is answered from the client's cache
+        // of the node the child listener keeps, so nothing is downloaded twice. Each
+        // subscription gets its own marker, removed when it fires or on detach, so a
+        // late one from an earlier subscription can't mark this one loaded.
+        private ValueEventListener loadedMarker;
+
+        private final SyncScope scope;
+
+        PatientsNode(SyncScope scope) {
+            super("patients (" + scope + ")");
+            this.scope = scope;
+        }
+
+        private void upsert(DataSnapshot snapshot) {
+            synchronized (this) {
+                children.put(snapshot.getKey(), snapshot);
+            }
+            Patient patient = parsePatient(snapshot);
+            if (patient == null) return;
+            for (PatientChangesCallback callback : subscribers) callback.onPatientUpserted(patient);
+        }
+
+        // Fresh objects on every call: subscribers keep and edit what they are given
+        List<Patient> cachedPatients() {
+            List<DataSnapshot> snapshots;
+            synchronized (this) {
+                snapshots = new ArrayList<>(children.values());
+            }
+            List<Patient> patients = new ArrayList<>(snapshots.size());
+            for (DataSnapshot snapshot : snapshots) {
+                Patient patient = parsePatient(snapshot);
+                if (patient != null) patients.add(patient);
+            }
+            return patients;
+        }
+
+        @Override
+        Query query() {
+            return patientsQuery(scope);
+        }
+
+        @Override
+        void attach(Query query) {
+            query.addChildEventListener(listener);
+            ValueEventListener marker = new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    onMarker(query, this);
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    onMarker(query, this);
+                }
+            };
+            synchronized (this) {
+                loadedMarker = marker;
+            }
+            // Not addListenerForSingleValueEvent: Firebase wraps that listener, so it
+            // could not be removed again on detach
+            query.addValueEventListener(marker);
+        }
+
+        private void onMarker(Query query, ValueEventListener marker) {
+            query.removeEventListener(marker);
+            synchronized (this) {
+                if (loadedMarker != marker) return; // from a subscription since cancelled
+                loadedMarker = null;
+            }
+            markLoaded();
+        }
+
+        @Override
+        void detach(Query query) {
+            query.removeEventListener(listener);
+            ValueEventListener marker;
+            synchronized (this) {
+                marker = loadedMarker;
+                loadedMarker = null;
+            }
+            if (marker != null) query.removeEventListener(marker);
+        }
+
+        @Override
+        void replay(PatientChangesCallback callback) {
+            for (Patient patient : cachedPatients()) callback.onPatientUpserted(patient);
+        }
+
+        @Override
+        void clearCache() {
+            children.clear();
+        }
+    }
+
+    private final class UsersNode extends LiveNode<UsersCallback> {
+        private DataSnapshot snapshot;
+
+        private final ValueEventListener listener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot data) {
+                synchronized (UsersNode.this) {
+                    snapshot = data;
+                }
+                markLoaded();
+                List<User> users = parseUsers(data);
                 Log.d(TAG, "Synced " + users.size() + " users from Firebase");
-                callback.onSuccess(users);
+                for (UsersCallback callback : subscribers) callback.onSuccess(users);
             }
-            
+
             @Override
             public void onCancelled(@NonNull DatabaseError error) {
                 Log.e(TAG, "User sync cancelled: " + error.getMessage());
-                callback.onFailure(error.getMessage());
+                for (UsersCallback callback : subscribers) callback.onFailure(error.getMessage());
             }
         };
-        
-        mDatabase.child("users").addValueEventListener(usersListener);
+
+        UsersNode() {
+            super("users");
+        }
+
+        synchronized DataSnapshot cachedSnapshot() {
+            return snapshot;
+        }
+
+        @Override
+        Query query() {
+            return mDatabase.child("users");
+        }
+
+        @Override
+        void attach(Query query) {
+            query.addValueEventListener(listener);
+        }
+
+        @Override
+        void detach(Query query) {
+            query.removeEventListener(listener);
+        }
+
+        @Override
+        void replay(UsersCallback callback) {
+            callback.onSuccess(parseUsers(cachedSnapshot()));
+        }
+
+        @Override
+        void clearCache() {
+            snapshot = null;
+        }
     }
     
     // ===== LOGOUT =====
@@ -225,12 +719,13 @@ public class FirebaseHelper {
         return null;
     }
     
+    // Detaches every live listener, whoever subscribed
     public void removeListeners() {
-        if (patientsListener != null) {
-            mDatabase.child("patients").removeEventListener(patientsListener);
-        }
-        if (usersListener != null) {
-            mDatabase.child("users").removeEventListener(usersListener);
+        List<PatientsNode> nodes;
+        synchronized (this) {
+            nodes = new ArrayList<>(patientNodes.values());
         }
+        for (PatientsNode node : nodes) node.cancelAll();
+        usersNode.cancelAll();
     }
 }
\ No newline at end of file
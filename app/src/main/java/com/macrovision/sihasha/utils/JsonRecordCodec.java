@@ -0,0 +1,48 @@
+package com.macrovision.sihasha.utils;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stores each record as UTF-8 JSON through its Gson adapter — the original format,
+ * still used to read older files and when binary storage is switched off.
+ */
+public class JsonRecordCodec<T> implements RecordCodec<T> {
+    public static final int ID = 1;
+
+    private final TypeAdapter<T> adapter;
+
+    public JsonRecordCodec(TypeAdapter<T> adapter) {
+        this.adapter = adapter;
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public int getSchemaVersion() {
+        return 1;
+    }
+
+    @Override
+    public byte[] encode(T record, StringDictionary dictionary) throws IOException {
+        StringWriter json = new StringWriter();
+        JsonWriter writer = new JsonWriter(json);
+        writer.setSerializeNulls(false); // same output as Gson.toJson
+        adapter.write(writer, record);
+        writer.flush();
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public T decode(byte[] data, int offset, int length, int schemaVersion,
+                    StringDictionary dictionary) throws IOException {
+        return adapter.fromJson(new String(data, offset, length, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,169 @@
+package com.macrovision.sihasha.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Insertion-ordered collection with a primary-key hash index.
+ * get/put/remove by key are O(1); replacing an existing key keeps its position,
+ * the same way ArrayList.set(i, ...) did for the id-scanning code it replaces.
+ *
+ * Readers get an immutable snapshot rather than a copy. It is built on the first
+ * read after a change and then shared by every reader until the next change, so a
+ * snapshot never shows a partial update and repeated reads cost nothing.
+ *
+ * Safe to use from any thread. Each list has its own read/write lock; callers that
+ * keep indexes derived from the list hold writeLock() across the list change and
+ * the index update, and readLock() while querying those indexes. Never call a
+ * mutator while holding only the read lock: it cannot be upgraded.
+ */
+public class KeyedList<T> implements Iterable<T> {
+
+    public interface KeyExtractor<T> {
+        String keyOf(T item);
+    }
+
+    private final KeyExtractor<T> keyExtractor;
+    private final Map<String, T> items = new LinkedHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // null whenever items has changed since the last snapshot()
+    private volatile List<T> snapshot;
+
+    public KeyedList(KeyExtractor<T> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+    public Lock writeLock() {
+        return lock.writeLock();
+    }
+
+    public T get(String key) {
+        if (key == null) return null;
+        lock.readLock().lock();
+        try {
+            return items.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean containsKey(String key) {
+        if (key == null) return false;
+        lock.readLock().lock();
+        try {
+            return items.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Inserts or replaces; returns the previous item with the same key, if any
+    public T put(T item) {
+        String key = item != null ? keyExtractor.keyOf(item) : null;
+        if (key == null) return null;
+        lock.writeLock().lock();
+        try {
+            snapshot = null;
+            return items.put(key, item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Inserts only if the key is new
+    public boolean add(T item) {
+        String key = item != null ? keyExtractor.keyOf(item) : null;
+        if (key == null) return false;
+        lock.writeLock().lock();
+        try {
+            if (items.containsKey(key)) return false;
+            snapshot = null;
+            items.put(key, item);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public T remove(String key) {
+        if (key == null) return null;
+        lock.writeLock().lock();
+        try {
+            T removed = items.remove(key);
+            if (removed != null) snapshot = null;
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            snapshot = null;
+            items.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void replaceAll(Collection<T> newItems) {
+        lock.writeLock().lock();
+        try {
+            snapshot = null;
+            items.clear();
+            if (newItems == null) return;
+            for (T item : newItems) put(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return items.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Unmodifiable and never changes; a different instance means the contents changed.
+    // Lock-free unless the list changed since the last call.
+    public List<T> snapshot() {
+        List<T> current = snapshot;
+        if (current != null) return current;
+        lock.readLock().lock();
+        try {
+            current = snapshot;
+            if (current == null) {
+                current = Collections.unmodifiableList(new ArrayList<>(items.values()));
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Iterates the current snapshot, so writers never cause a ConcurrentModificationException
+    @Override
+    public Iterator<T> iterator() {
+        return snapshot().iterator();
+    }
+}
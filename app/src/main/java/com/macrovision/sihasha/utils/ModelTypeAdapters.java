@@ -0,0 +1,534 @@
+package com.macrovision.sihasha.utils;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.macrovision.sihasha.models.InventoryItem;
+import com.macrovision.sihasha.models.Patient;
+import com.macrovision.sihasha.models.Staff;
+import com.macrovision.sihasha.models.User;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written Gson adapters for the persisted models, so loading never goes through
+ * reflection. JSON field names match what Gson's reflective adapter produced, so data
+ * written by older builds still reads back; unknown fields are skipped.
+ * Low-cardinality fields are read through StringPool.
+ */
+public final class ModelTypeAdapters {
+
+    private ModelTypeAdapters() {}
+
+    public static GsonBuilder register(GsonBuilder builder) {
+        return builder
+                .registerTypeAdapter(Patient.class, new PatientAdapter().nullSafe())
+                .registerTypeAdapter(InventoryItem.class, new InventoryItemAdapter().nullSafe())
+                .registerTypeAdapter(User.class, new UserAdapter().nullSafe())
+                .registerTypeAdapter(Staff.class, new StaffAdapter().nullSafe());
+    }
+
+    private static final class PatientAdapter extends TypeAdapter<Patient> {
+        @Override
+        public void write(JsonWriter out, Patient p) throws IOException {
+            if (p == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(p.getId());
+            out.name("name").value(p.getName());
+            out.name("husbandName").value(p.getHusbandName());
+            out.name("age").value(p.getAge());
+            out.name("phoneNumber").value(p.getPhoneNumber());
+            out.name("address").value(p.getAddress());
+            out.name("village").value(p.getVillage());
+            out.name("block").value(p.getBlock());
+            out.name("district").value(p.getDistrict());
+            out.name("aadharNumber").value(p.getAadharNumber());
+            out.name("bankAccount").value(p.getBankAccount());
+            out.name("ifscCode").value(p.getIfscCode());
+            out.name("religion").value(p.getReligion());
+            out.name("caste").value(p.getCaste());
+            out.name("education").value(p.getEducation());
+            out.name("occupation").value(p.getOccupation());
+            out.name("economicStatus").value(p.getEconomicStatus());
+            out.name("pregnancyNumber").value(p.getPregnancyNumber());
+            out.name("liveChildren").value(p.getLiveChildren());
+            out.name("previousAbortions").value(p.getPreviousAbortions());
+            out.name("lmpDate").value(p.getLmpDate());
+            out.name("eddDate").value(p.getEddDate());
+            out.name("pregnancyStatus").value(p.getPregnancyStatus());
+            out.name("riskFactors");
+            writeStringArray(out, p.getRiskFactors());
+            out.name("height").value(p.getHeight());
+            out.name("bloodGroup").value(p.getBloodGroup());
+            out.name("registrationDate").value(p.getRegistrationDate());
+            out.name("ashaId").value(p.getAshaId());
+            out.name("phcId").value(p.getPhcId());
+            out.name("isHighRisk").value(p.isHighRisk());
+            out.name("assignedDoctor").value(p.getAssignedDoctor());
+            out.name("lastVisit").value(p.getLastVisit());
+            out.name("isReferred").value(p.isReferred());
+            out.name("referredTo").value(p.getReferredTo());
+            out.name("referredBy").value(p.getReferredBy());
+            out.name("referralDate").value(p.getReferralDate());
+            out.name("referralStatus").value(p.getReferralStatus());
+            out.name("version").value(p.getVersion());
+            out.name("updatedAt").value(p.getUpdatedAt());
+            out.name("updatedBy").value(p.getUpdatedBy());
+            out.name("fieldVersions");
+            writeLongMap(out, p.getFieldVersions());
+            out.endObject();
+        }
+
+        @Override
+        public Patient read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Patient p = new Patient();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": p.setId(readString(in)); break;
+                    case "name": p.setName(readString(in)); break;
+                    case "husbandName": p.setHusbandName(readString(in)); break;
+                    case "age": p.setAge(readInt(in)); break;
+                    case "phoneNumber": p.setPhoneNumber(readString(in)); break;
+                    case "address": p.setAddress(readString(in)); break;
+                    case "village": p.setVillage(readPooledString(in)); break;
+                    case "block": p.setBlock(readPooledString(in)); break;
+                    case "district": p.setDistrict(readPooledString(in)); break;
+                    case "aadharNumber": p.setAadharNumber(readString(in)); break;
+                    case "bankAccount": p.setBankAccount(readString(in)); break;
+                    case "ifscCode": p.setIfscCode(readString(in)); break;
+                    case "religion": p.setReligion(readPooledString(in)); break;
+                    case "caste": p.setCaste(readPooledString(in)); break;
+                    case "education": p.setEducation(readPooledString(in)); break;
+                    case "occupation": p.setOccupation(readPooledString(in)); break;
+                    case "economicStatus": p.setEconomicStatus(readPooledString(in)); break;
+                    case "pregnancyNumber": p.setPregnancyNumber(readInt(in)); break;
+                    case "liveChildren": p.setLiveChildren(readInt(in)); break;
+                    case "previousAbortions": p.setPreviousAbortions(readInt(in)); break;
+                    case "lmpDate": p.setLmpDate(readString(in)); break;
+                    case "eddDate": p.setEddDate(readString(in)); break;
+                    case "pregnancyStatus": p.setPregnancyStatus(readPooledString(in)); break;
+                    case "riskFactors": p.setRiskFactors(readStringArray(in)); break;
+                    case "height": p.setHeight(readInt(in)); break;
+                    case "bloodGroup": p.setBloodGroup(readPooledString(in)); break;
+                    case "registrationDate": p.setRegistrationDate(readString(in)); break;
+                    case "ashaId": p.setAshaId(readPooledString(in)); break;
+                    case "phcId": p.setPhcId(readPooledString(in)); break;
+                    case "isHighRisk": p.setHighRisk(readBoolean(in)); break;
+                    case "assignedDoctor": p.setAssignedDoctor(readPooledString(in)); break;
+                    case "lastVisit": p.setLastVisit(readString(in)); break;
+                    case "isReferred": p.setReferred(readBoolean(in)); break;
+                    case "referredTo": p.setReferredTo(readPooledString(in)); break;
+                    case "referredBy": p.setReferredBy(readPooledString(in)); break;
+                    case "referralDate": p.setReferralDate(readString(in)); break;
+                    case "referralStatus": p.setReferralStatus(readPooledString(in)); break;
+                    case "version": p.setVersion(readLong(in)); break;
+                    case "updatedAt": p.setUpdatedAt(readLong(in)); break;
+                    case "updatedBy": p.setUpdatedBy(readPooledString(in)); break;
+                    case "fieldVersions": p.setFieldVersions(readLongMap(in)); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return p;
+        }
+    }
+
+    private static final class InventoryItemAdapter extends TypeAdapter<InventoryItem> {
+        @Override
+        public void write(JsonWriter out, InventoryItem item) throws IOException {
+            if (item == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(item.getId());
+            out.name("name").value(item.getName());
+            out.name("category").value(item.getCategory());
+            out.name("currentStock").value(item.getCurrentStock());
+            out.name("minimumStock").value(item.getMinimumStock());
+            out.name("expiryDate").value(item.getExpiryDate());
+            out.name("batchNumber").value(item.getBatchNumber());
+            out.name("supplier").value(item.getSupplier());
+            out.name("costPerUnit").value(item.getCostPerUnit());
+            out.name("storageTemp").value(item.getStorageTemp());
+            out.name("manufacturer").value(item.getManufacturer());
+            out.name("phcDistribution");
+            writeIntMap(out, item.getPhcDistribution());
+            out.endObject();
+        }
+
+        @Override
+        public InventoryItem read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            InventoryItem item = new InventoryItem();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": item.setId(readString(in)); break;
+                    case "name": item.setName(readString(in)); break;
+                    case "category": item.setCategory(readString(in)); break;
+                    case "currentStock": item.setCurrentStock(readInt(in)); break;
+                    case "minimumStock": item.setMinimumStock(readInt(in)); break;
+                    case "expiryDate": item.setExpiryDate(readString(in)); break;
+                    case "batchNumber": item.setBatchNumber(readString(in)); break;
+                    case "supplier": item.setSupplier(readString(in)); break;
+                    case "costPerUnit": item.setCostPerUnit(readDouble(in)); break;
+                    case "storageTemp": item.setStorageTemp(readString(in)); break;
+                    case "manufacturer": item.setManufacturer(readString(in)); break;
+                    case "phcDistribution": item.setPhcDistribution(readIntMap(in)); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return item;
+        }
+    }
+
+    private static final class UserAdapter extends TypeAdapter<User> {
+        @Override
+        public void write(JsonWriter out, User user) throws IOException {
+            if (user == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(user.getId());
+            out.name("name").value(user.getName());
+            out.name("role").value(user.getRole());
+            out.name("phone").value(user.getPhone());
+            out.name("village").value(user.getVillage());
+            out.name("block").value(user.getBlock());
+            out.name("district").value(user.getDistrict());
+            out.name("state").value(user.getState());
+            out.name("phcId").value(user.getPhcId());
+            out.name("password").value(user.getPassword());
+            out.name("performance");
+            writeUserPerformance(out, user.getPerformance());
+            out.endObject();
+        }
+
+        @Override
+        public User read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            User user = new User();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": user.setId(readString(in)); break;
+                    case "name": user.setName(readString(in)); break;
+                    case "role": user.setRole(readPooledString(in)); break;
+                    case "phone": user.setPhone(readString(in)); break;
+                    case "village": user.setVillage(readPooledString(in)); break;
+                    case "block": user.setBlock(readPooledString(in)); break;
+                    case "district": user.setDistrict(readPooledString(in)); break;
+                    case "state": user.setState(readPooledString(in)); break;
+                    case "phcId": user.setPhcId(readPooledString(in)); break;
+                    case "password": user.setPassword(readString(in)); break;
+                    case "performance": user.setPerformance(readUserPerformance(in)); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return user;
+        }
+    }
+
+    private static final class StaffAdapter extends TypeAdapter<Staff> {
+        @Override
+        public void write(JsonWriter out, Staff staff) throws IOException {
+            if (staff == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(staff.getId());
+            out.name("name").value(staff.getName());
+            out.name("role").value(staff.getRole());
+            out.name("phone").value(staff.getPhone());
+            out.name("email").value(staff.getEmail());
+            out.name("village").value(staff.getVillage());
+            out.name("block").value(staff.getBlock());
+            out.name("district").value(staff.getDistrict());
+            out.name("state").value(staff.getState());
+            out.name("phcId").value(staff.getPhcId());
+            out.name("phcName").value(staff.getPhcName());
+            out.name("qualification").value(staff.getQualification());
+            out.name("experience").value(staff.getExperience());
+            out.name("joiningDate").value(staff.getJoiningDate());
+            out.name("lastTraining").value(staff.getLastTraining());
+            out.name("assignedPopulation").value(staff.getAssignedPopulation());
+            out.name("assignedFamilies").value(staff.getAssignedFamilies());
+            out.name("specialization").value(staff.getSpecialization());
+            out.name("responsibilities").value(staff.getResponsibilities());
+            out.name("performance");
+            writeStaffPerformance(out, staff.getPerformance());
+            out.name("status").value(staff.getStatus());
+            out.name("designation").value(staff.getDesignation());
+            out.name("managedPHCs").value(staff.getManagedPHCs());
+            out.endObject();
+        }
+
+        @Override
+        public Staff read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Staff staff = new Staff();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": staff.setId(readString(in)); break;
+                    case "name": staff.setName(readString(in)); break;
+                    case "role": staff.setRole(readPooledString(in)); break;
+                    case "phone": staff.setPhone(readString(in)); break;
+                    case "email": staff.setEmail(readString(in)); break;
+                    case "village": staff.setVillage(readPooledString(in)); break;
+                    case "block": staff.setBlock(readPooledString(in)); break;
+                    case "district": staff.setDistrict(readPooledString(in)); break;
+                    case "state": staff.setState(readPooledString(in)); break;
+                    case "phcId": staff.setPhcId(readPooledString(in)); break;
+                    case "phcName": staff.setPhcName(readPooledString(in)); break;
+                    case "qualification": staff.setQualification(readPooledString(in)); break;
+                    case "experience": staff.setExperience(readString(in)); break;
+                    case "joiningDate": staff.setJoiningDate(readString(in)); break;
+                    case "lastTraining": staff.setLastTraining(readString(in)); break;
+                    case "assignedPopulation": staff.setAssignedPopulation(readString(in)); break;
+                    case "assignedFamilies": staff.setAssignedFamilies(readString(in)); break;
+                    case "specialization": staff.setSpecialization(readPooledString(in)); break;
+                    case "responsibilities": staff.setResponsibilities(readString(in)); break;
+                    case "performance": staff.setPerformance(readStaffPerformance(in)); break;
+                    case "status": staff.setStatus(readPooledString(in)); break;
+                    case "designation": staff.setDesignation(readPooledString(in)); break;
+                    case "managedPHCs": staff.setManagedPHCs(readString(in)); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return staff;
+        }
+    }
+
+    // ===== NESTED VALUES =====
+
+    private static void writeStringArray(JsonWriter out, String[] values) throws IOException {
+        if (values == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (String value : values) out.value(value);
+        out.endArray();
+    }
+
+    private static String[] readStringArray(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) values.add(readPooledString(in));
+        in.endArray();
+        return values.toArray(new String[0]);
+    }
+
+    private static void writeIntMap(JsonWriter out, Map<String, Integer> map) throws IOException {
+        if (map == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            out.name(entry.getKey()).value(entry.getValue());
+        }
+        out.endObject();
+    }
+
+    private static Map<String, Integer> readIntMap(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Map<String, Integer> map = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                map.put(key, null);
+            } else {
+                map.put(key, in.nextInt());
+            }
+        }
+        in.endObject();
+        return map;
+    }
+
+    private static void writeLongMap(JsonWriter out, Map<String, Long> map) throws IOException {
+        if (map == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        for (Map.Entry<String, Long> entry : map.entrySet()) {
+            out.name(entry.getKey()).value(entry.getValue());
+        }
+        out.endObject();
+    }
+
+    private static Map<String, Long> readLongMap(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Map<String, Long> map = new HashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = StringPool.canonical(in.nextName());
+            map.put(key, readLong(in));
+        }
+        in.endObject();
+        return map;
+    }
+
+    private static void writeUserPerformance(JsonWriter out, User.Performance performance) throws IOException {
+        if (performance == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("monthlyTarget").value(performance.getMonthlyTarget());
+        out.name("achieved").value(performance.getAchieved());
+        out.name("efficiency").value(performance.getEfficiency());
+        out.endObject();
+    }
+
+    private static User.Performance readUserPerformance(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int monthlyTarget = 0, achieved = 0, efficiency = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "monthlyTarget": monthlyTarget = readInt(in); break;
+                case "achieved": achieved = readInt(in); break;
+                case "efficiency": efficiency = readInt(in); break;
+                default: in.skipValue();
+            }
+        }
+        in.endObject();
+        return new User.Performance(monthlyTarget, achieved, efficiency);
+    }
+
+    private static void writeStaffPerformance(JsonWriter out, Staff.Performance performance) throws IOException {
+        if (performance == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("monthlyTarget").value(performance.getMonthlyTarget());
+        out.name("achieved").value(performance.getAchieved());
+        out.name("efficiency").value(performance.getEfficiency());
+        out.name("patientsHandled").value(performance.getPatientsHandled());
+        out.name("trainingsCompleted").value(performance.getTrainingsCompleted());
+        out.endObject();
+    }
+
+    private static Staff.Performance readStaffPerformance(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int monthlyTarget = 0, achieved = 0, patientsHandled = 0, trainingsCompleted = 0;
+        double efficiency = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "monthlyTarget": monthlyTarget = readInt(in); break;
+                case "achieved": achieved = readInt(in); break;
+                case "efficiency": efficiency = readDouble(in); break;
+                case "patientsHandled": patientsHandled = readInt(in); break;
+                case "trainingsCompleted": trainingsCompleted = readInt(in); break;
+                default: in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Staff.Performance(monthlyTarget, achieved, efficiency, patientsHandled, trainingsCompleted);
+    }
+
+    // ===== PRIMITIVES =====
+    // Lenient like Gson's built-in adapters: null keeps the Java default, numbers may be quoted
+
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) return Boolean.toString(in.nextBoolean());
+        return in.nextString();
+    }
+
+    // For low-cardinality values: returns the shared StringPool instance
+    private static String readPooledString(JsonReader in) throws IOException {
+        return StringPool.canonical(readString(in));
+    }
+
+    private static int readInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    private static long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextLong();
+    }
+
+    private static double readDouble(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextDouble();
+    }
+
+    private static boolean readBoolean(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        if (token == JsonToken.STRING) return Boolean.parseBoolean(in.nextString());
+        return in.nextBoolean();
+    }
+}
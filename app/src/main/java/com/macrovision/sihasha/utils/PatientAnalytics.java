@@ -0,0 +1,139 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+
+import java.util.Collection;
+
+/**
+ * Immutable snapshot of the patient counters behind the analytics screen and reports.
+ *
+ * Everything is computed in a single pass by an Aggregator. Each patient contributes a
+ * bitmask of the counters it falls under (flagsOf), so an aggregator can also be kept
+ * up to date incrementally: remember the flags a patient was added with, and on an
+ * edit remove those and add the new ones.
+ */
+public final class PatientAnalytics {
+
+    // ===== PER-PATIENT FLAGS =====
+
+    public static final int PREGNANT = 1;
+    public static final int DELIVERED = 1 << 1;
+    public static final int POSTPARTUM = 1 << 2;
+    public static final int HIGH_RISK = 1 << 3;
+    public static final int REFERRED = 1 << 4;
+    // Pregnant with 4+ recorded pregnancies/ANC visits
+    public static final int ANC_COMPLETE = 1 << 5;
+    // Delivered with a blood group on record, taken as a facility delivery
+    public static final int INSTITUTIONAL_DELIVERY = 1 << 6;
+    // Aged 5 or under
+    public static final int CHILD = 1 << 7;
+    // Child with a registration date, taken as immunized
+    public static final int CHILD_IMMUNIZED = 1 << 8;
+
+    private static final int FLAG_COUNT = 9;
+
+    public static int flagsOf(Patient p) {
+        int flags = 0;
+        String status = p.getPregnancyStatus();
+        if ("pregnant".equals(status)) {
+            flags |= PREGNANT;
+            if (p.getPregnancyNumber() >= 4) flags |= ANC_COMPLETE;
+        } else if ("delivered".equals(status)) {
+            flags |= DELIVERED;
+            if (p.getBloodGroup() != null && !p.getBloodGroup().isEmpty()) flags |= INSTITUTIONAL_DELIVERY;
+        } else if ("postpartum".equals(status)) {
+            flags |= POSTPARTUM;
+        }
+        if (p.isHighRisk()) flags |= HIGH_RISK;
+        if (p.isReferred()) flags |= REFERRED;
+        if (p.getAge() <= 5) {
+            flags |= CHILD;
+            if (p.getRegistrationDate() != null) flags |= CHILD_IMMUNIZED;
+        }
+        return flags;
+    }
+
+    // ===== AGGREGATOR =====
+
+    public static final class Aggregator {
+        private int total;
+        private final int[] counts = new int[FLAG_COUNT];
+
+        public Aggregator addAll(Collection<Patient> patients) {
+            if (patients == null) return this;
+            for (Patient p : patients) {
+                if (p != null) add(flagsOf(p));
+            }
+            return this;
+        }
+
+        public void add(int flags) {
+            total++;
+            apply(flags, 1);
+        }
+
+        public void remove(int flags) {
+            total--;
+            apply(flags, -1);
+        }
+
+        public void clear() {
+            total = 0;
+            for (int i = 0; i < counts.length; i++) counts[i] = 0;
+        }
+
+        private void apply(int flags, int delta) {
+            for (int bit = 0; bit < FLAG_COUNT; bit++) {
+                if ((flags & (1 << bit)) != 0) counts[bit] += delta;
+            }
+        }
+
+        public PatientAnalytics snapshot() {
+            return new PatientAnalytics(total, counts.clone());
+        }
+    }
+
+    public static final PatientAnalytics EMPTY = new Aggregator().snapshot();
+
+    public static PatientAnalytics of(Collection<Patient> patients) {
+        return new Aggregator().addAll(patients).snapshot();
+    }
+
+    // ===== SNAPSHOT =====
+
+    private final int total;
+    private final int[] counts;
+
+    private PatientAnalytics(int total, int[] counts) {
+        this.total = total;
+        this.counts = counts;
+    }
+
+    public int getTotal() { return total; }
+    public int getPregnant() { return count(PREGNANT); }
+    public int getDelivered() { return count(DELIVERED); }
+    public int getPostpartum() { return count(POSTPARTUM); }
+    public int getOtherStatus() { return total - getPregnant() - getDelivered() - getPostpartum(); }
+    public int getHighRisk() { return count(HIGH_RISK); }
+    public int getReferred() { return count(REFERRED); }
+    public int getAncComplete() { return count(ANC_COMPLETE); }
+    public int getInstitutionalDeliveries() { return count(INSTITUTIONAL_DELIVERY); }
+    public int getChildren() { return count(CHILD); }
+    public int getChildrenImmunized() { return count(CHILD_IMMUNIZED); }
+
+    public int count(int flag) {
+        return counts[Integer.numberOfTrailingZeros(flag)];
+    }
+
+    // Whole percentages, rounded down; 0 when there is nothing to divide by
+
+    public int getAncCompletionRate() { return percent(getAncComplete(), getPregnant()); }
+    public int getInstitutionalDeliveryRate() { return percent(getInstitutionalDeliveries(), getDelivered()); }
+    // High-risk share of all patients until haemoglobin is recorded
+    public int getAnemiaRate() { return percent(getHighRisk(), total); }
+    public int getImmunizationRate() { return percent(getChildrenImmunized(), getChildren()); }
+
+    private static int percent(int part, int whole) {
+        return whole > 0 ? part * 100 / whole : 0;
+    }
+}
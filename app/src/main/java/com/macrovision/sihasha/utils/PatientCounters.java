@@ -0,0 +1,124 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Live PatientAnalytics counters for every scope a dashboard can ask about:
+ * all patients, each ASHA's patients and each doctor's patients.
+ *
+ * Maintained alongside PatientIndex, under the same lock. Each put/remove is O(1): the flags and scope keys
+ * a patient was counted under are remembered, so an edit subtracts exactly what the
+ * previous version added, even if the Patient object was modified in place.
+ */
+public class PatientCounters {
+
+    private static class Counted {
+        final int flags;
+        final String ashaId;
+        final String doctorId;
+
+        Counted(Patient p) {
+            flags = PatientAnalytics.flagsOf(p);
+            ashaId = p.getAshaId();
+            doctorId = p.getAssignedDoctor();
+        }
+    }
+
+    private final Map<String, Counted> counted = new HashMap<>();
+    private final PatientAnalytics.Aggregator all = new PatientAnalytics.Aggregator();
+    private final Map<String, PatientAnalytics.Aggregator> byAsha = new HashMap<>();
+    private final Map<String, PatientAnalytics.Aggregator> byDoctor = new HashMap<>();
+    // Built on first request after a change, then shared until the next one
+    private volatile Map<String, PatientAnalytics> byAshaSnapshot;
+
+    // ===== MAINTENANCE =====
+
+    public void rebuild(Collection<Patient> patients) {
+        clear();
+        if (patients == null) return;
+        for (Patient p : patients) put(p);
+    }
+
+    public void clear() {
+        byAshaSnapshot = null;
+        counted.clear();
+        all.clear();
+        byAsha.clear();
+        byDoctor.clear();
+    }
+
+    public void put(Patient patient) {
+        if (patient == null || patient.getId() == null) return;
+        byAshaSnapshot = null;
+        Counted previous = counted.get(patient.getId());
+        if (previous != null) subtract(previous);
+
+        Counted current = new Counted(patient);
+        counted.put(patient.getId(), current);
+        all.add(current.flags);
+        scope(byAsha, current.ashaId, true).add(current.flags);
+        scope(byDoctor, current.doctorId, true).add(current.flags);
+    }
+
+    public void remove(String patientId) {
+        if (patientId == null) return;
+        Counted previous = counted.remove(patientId);
+        if (previous == null) return;
+        byAshaSnapshot = null;
+        subtract(previous);
+    }
+
+    private void subtract(Counted c) {
+        all.remove(c.flags);
+        PatientAnalytics.Aggregator asha = scope(byAsha, c.ashaId, false);
+        if (asha != null) asha.remove(c.flags);
+        PatientAnalytics.Aggregator doctor = scope(byDoctor, c.doctorId, false);
+        if (doctor != null) doctor.remove(c.flags);
+    }
+
+    // Patients without an ASHA/doctor are counted under the empty key
+    private static PatientAnalytics.Aggregator scope(Map<String, PatientAnalytics.Aggregator> scopes,
+                                                     String key, boolean create) {
+        String k = key != null ? key : "";
+        PatientAnalytics.Aggregator aggregator = scopes.get(k);
+        if (aggregator == null && create) {
+            aggregator = new PatientAnalytics.Aggregator();
+            scopes.put(k, aggregator);
+        }
+        return aggregator;
+    }
+
+    // ===== QUERIES =====
+
+    public PatientAnalytics getAll() {
+        return all.snapshot();
+    }
+
+    public PatientAnalytics getForAsha(String ashaId) {
+        PatientAnalytics.Aggregator aggregator = ashaId != null ? byAsha.get(ashaId) : null;
+        return aggregator != null ? aggregator.snapshot() : PatientAnalytics.EMPTY;
+    }
+
+    // Counts for every ASHA with patients, keyed by ashaId, from one cached map
+    public Map<String, PatientAnalytics> getByAsha() {
+        if (byAshaSnapshot == null) {
+            Map<String, PatientAnalytics> snapshot = new HashMap<>(byAsha.size() * 2);
+            for (Map.Entry<String, PatientAnalytics.Aggregator> e : byAsha.entrySet()) {
+                PatientAnalytics counts = e.getValue().snapshot();
+                if (counts.getTotal() > 0) snapshot.put(e.getKey(), counts);
+            }
+            byAshaSnapshot = Collections.unmodifiableMap(snapshot);
+        }
+        return byAshaSnapshot;
+    }
+
+    public PatientAnalytics getForDoctor(String doctorId) {
+        PatientAnalytics.Aggregator aggregator = doctorId != null ? byDoctor.get(doctorId) : null;
+        return aggregator != null ? aggregator.snapshot() : PatientAnalytics.EMPTY;
+    }
+}
@@ -0,0 +1,192 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory secondary indexes over the patient list so role queries cost O(result).
+ *
+ * Every patient gets an integer slot. Lookups by ashaId, assignedDoctor, phcId and
+ * pregnancyStatus go through hash multimaps of slots; high-risk membership is a bitmap.
+ * The keys a patient was indexed under are remembered per slot, because screens edit
+ * Patient objects in place before handing them back to DataManager.
+ */
+public class PatientIndex {
+
+    private static class IndexedKeys {
+        final String ashaId;
+        final String doctorId;
+        final String phcId;
+        final String status;
+        final boolean highRisk;
+
+        IndexedKeys(Patient p) {
+            ashaId = p.getAshaId();
+            doctorId = p.getAssignedDoctor();
+            phcId = p.getPhcId();
+            status = p.getPregnancyStatus();
+            highRisk = p.isHighRisk();
+        }
+    }
+
+    private final List<Patient> slots = new ArrayList<>();
+    private final List<IndexedKeys> slotKeys = new ArrayList<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+
+    private final Map<String, Set<Integer>> byAsha = new HashMap<>();
+    private final Map<String, Set<Integer>> byDoctor = new HashMap<>();
+    private final Map<String, Set<Integer>> byPhc = new HashMap<>();
+    private final Map<String, Set<Integer>> byStatus = new HashMap<>();
+    private final BitSet highRisk = new BitSet();
+
+    // ===== MAINTENANCE =====
+
+    public void rebuild(Collection<Patient> patients) {
+        clear();
+        if (patients == null) return;
+        for (Patient p : patients) put(p);
+    }
+
+    public void clear() {
+        slots.clear();
+        slotKeys.clear();
+        slotById.clear();
+        freeSlots.clear();
+        byAsha.clear();
+        byDoctor.clear();
+        byPhc.clear();
+        byStatus.clear();
+        highRisk.clear();
+    }
+
+    // Adds a patient, or re-indexes it if the ID is already known
+    public void put(Patient patient) {
+        if (patient == null || patient.getId() == null) return;
+
+        Integer slot = slotById.get(patient.getId());
+        if (slot != null) {
+            unlink(slot);
+        } else {
+            slot = allocateSlot();
+            slotById.put(patient.getId(), slot);
+        }
+
+        IndexedKeys keys = new IndexedKeys(patient);
+        slots.set(slot, patient);
+        slotKeys.set(slot, keys);
+        link(byAsha, keys.ashaId, slot);
+        link(byDoctor, keys.doctorId, slot);
+        link(byPhc, keys.phcId, slot);
+        link(byStatus, keys.status, slot);
+        if (keys.highRisk) highRisk.set(slot);
+    }
+
+    public void remove(String patientId) {
+        if (patientId == null) return;
+        Integer slot = slotById.remove(patientId);
+        if (slot == null) return;
+        unlink(slot);
+        slots.set(slot, null);
+        slotKeys.set(slot, null);
+        freeSlots.push(slot);
+    }
+
+    private int allocateSlot() {
+        if (!freeSlots.isEmpty()) return freeSlots.pop();
+        slots.add(null);
+        slotKeys.add(null);
+        return slots.size() - 1;
+    }
+
+    private void unlink(int slot) {
+        IndexedKeys keys = slotKeys.get(slot);
+        if (keys == null) return;
+        unlink(byAsha, keys.ashaId, slot);
+        unlink(byDoctor, keys.doctorId, slot);
+        unlink(byPhc, keys.phcId, slot);
+        unlink(byStatus, keys.status, slot);
+        highRisk.clear(slot);
+    }
+
+    private static void link(Map<String, Set<Integer>> index, String key, int slot) {
+        if (key == null) return;
+        Set<Integer> bucket = index.get(key);
+        if (bucket == null) {
+            bucket = new LinkedHashSet<>();
+            index.put(key, bucket);
+        }
+        bucket.add(slot);
+    }
+
+    private static void unlink(Map<String, Set<Integer>> index, String key, int slot) {
+        if (key == null) return;
+        Set<Integer> bucket = index.get(key);
+        if (bucket == null) return;
+        bucket.remove(slot);
+        if (bucket.isEmpty()) index.remove(key);
+    }
+
+    // ===== QUERIES =====
+
+    public List<Patient> getByAsha(String ashaId) {
+        return collect(byAsha.get(ashaId), false);
+    }
+
+    public List<Patient> getByDoctor(String doctorId) {
+        return collect(byDoctor.get(doctorId), false);
+    }
+
+    public List<Patient> getByPhc(String phcId) {
+        return collect(byPhc.get(phcId), false);
+    }
+
+    public List<Patient> getByStatus(String status) {
+        return collect(byStatus.get(status), false);
+    }
+
+    public List<Patient> getHighRiskByAsha(String ashaId) {
+        return collect(byAsha.get(ashaId), true);
+    }
+
+    public List<Patient> getHighRiskByDoctor(String doctorId) {
+        return collect(byDoctor.get(doctorId), true);
+    }
+
+    public List<Patient> getHighRisk() {
+        List<Patient> result = new ArrayList<>(highRisk.cardinality());
+        for (int slot = highRisk.nextSetBit(0); slot >= 0; slot = highRisk.nextSetBit(slot + 1)) {
+            result.add(slots.get(slot));
+        }
+        return result;
+    }
+
+    public int countByAsha(String ashaId) {
+        Set<Integer> bucket = byAsha.get(ashaId);
+        return bucket != null ? bucket.size() : 0;
+    }
+
+    public int countByDoctor(String doctorId) {
+        Set<Integer> bucket = byDoctor.get(doctorId);
+        return bucket != null ? bucket.size() : 0;
+    }
+
+    private List<Patient> collect(Set<Integer> bucket, boolean highRiskOnly) {
+        if (bucket == null) return new ArrayList<>();
+        List<Patient> result = new ArrayList<>(bucket.size());
+        for (int slot : bucket) {
+            if (highRiskOnly && !highRisk.get(slot)) continue;
+            result.add(slots.get(slot));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,372 @@
+package com.macrovision.sihasha.utils;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.macrovision.sihasha.models.Patient;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only patient record log.
+ *
+ * File layout: [magic][version][codec id][schema version] followed by frames of
+ * [length][crc32][op][payload]. A PUT frame carries one patient encoded by the
+ * RecordCodec named in the header, a DELETE frame carries the patient ID.
+ * Every edit appends a single frame; the log is compacted (rewritten with only the
+ * live records) once dead frames outnumber live ones.
+ *
+ * Version 1 logs (8-byte header, JSON payloads) are still read, and are rewritten in
+ * the configured codec on load, as is any log written with a different codec. If that
+ * rewrite fails, appends keep using the codec the header names; a schema its codec can
+ * no longer write takes no appends until a later rewrite succeeds.
+ */
+public class PatientLogStore implements PatientStore {
+    private static final String TAG = "PatientLogStore";
+
+    private static final int MAGIC = 0x50544C47; // "PTLG"
+    private static final int FORMAT_VERSION = 2;
+    private static final int LEGACY_FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int LEGACY_HEADER_SIZE = 8;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    // Don't bother compacting tiny logs
+    private static final int COMPACT_MIN_FRAMES = 256;
+
+    private final File logFile;
+    private final RecordCodec<Patient> codec;
+    private final RecordCodec<Patient> jsonCodec;
+
+    // Latest version of every live record, in first-insertion order
+    private final Map<String, Patient> live = new LinkedHashMap<>();
+    // Strings already defined by frames in the current file
+    private StringDictionary dictionary = new StringDictionary();
+    private int frameCount = 0;
+    // End of the last complete frame; a failed append is cut back to here
+    private long validLength = 0;
+    private DataOutputStream appendStream;
+    // What appended frames are encoded with: the codec named in the file's header, or
+    // null while the file is in a schema no codec can still write
+    private RecordCodec<Patient> appendCodec;
+
+    public PatientLogStore(File logFile, Gson gson, RecordCodec<Patient> codec) {
+        this.logFile = logFile;
+        this.codec = codec;
+        this.jsonCodec = new JsonRecordCodec<>(gson.getAdapter(Patient.class));
+        this.appendCodec = codec;
+    }
+
+    @Override
+    public synchronized List<Patient> loadAll() {
+        closeAppendStream();
+        live.clear();
+        dictionary = new StringDictionary();
+        frameCount = 0;
+        validLength = 0;
+        appendCodec = codec;
+
+        if (!logFile.exists()) {
+            Log.d(TAG, "No patient log yet");
+            return new ArrayList<>();
+        }
+
+        RecordCodec<Patient> fileCodec = null;
+        int fileSchema = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(logFile)))) {
+            int magic = in.readInt();
+            int version = in.readInt();
+            if (magic == MAGIC && version == LEGACY_FORMAT_VERSION) {
+                fileCodec = jsonCodec;
+                fileSchema = 1;
+                validLength = LEGACY_HEADER_SIZE;
+            } else if (magic == MAGIC && version == FORMAT_VERSION) {
+                fileCodec = codecFor(in.readInt());
+                fileSchema = in.readInt();
+                validLength = HEADER_SIZE;
+            }
+            if (fileCodec == null) {
+                Log.e(TAG, "Unrecognised patient log header, moving it aside");
+                quarantine();
+                return new ArrayList<>();
+            }
+
+            while (true) {
+                int length = in.readInt();
+                int crc = in.readInt();
+                if (length <= 0 || length > MAX_FRAME_SIZE) {
+                    Log.w(TAG, "Bad frame length " + length + " at offset " + validLength);
+                    break;
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                if (checksum(frame) != crc) {
+                    Log.w(TAG, "Checksum mismatch at offset " + validLength);
+                    break;
+                }
+                int dictionaryMark = dictionary.size();
+                try {
+                    applyFrame(frame, fileCodec, fileSchema);
+                } catch (IOException e) {
+                    Log.w(TAG, "Undecodable frame at offset " + validLength, e);
+                    dictionary.truncate(dictionaryMark);
+                    break;
+                }
+                frameCount++;
+                validLength += FRAME_HEADER_SIZE + length;
+            }
+        } catch (EOFException endOfLog) {
+            // Normal end of file, or a frame torn by a crash mid-append
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading patient log", e);
+        }
+
+        boolean converted = false;
+        if (fileCodec != codec || fileSchema != codec.getSchemaVersion()) {
+            // Appends must match the header, so convert the whole file up front
+            Log.d(TAG, "Converting patient log to codec " + codec.getId() + " v" + codec.getSchemaVersion());
+            converted = rewrite();
+            if (!converted) {
+                Log.w(TAG, "Patient log conversion failed, appending in its current format");
+                appendCodec = fileSchema == fileCodec.getSchemaVersion() ? fileCodec : null;
+            }
+        }
+        if (!converted && validLength < logFile.length()) {
+            // Drop anything after the last intact frame so new appends start clean
+            Log.w(TAG, "Truncating patient log from " + logFile.length() + " to " + validLength + " bytes");
+            truncate(validLength);
+        }
+
+        Log.d(TAG, "Loaded " + live.size() + " patients from " + frameCount + " log frames");
+        return new ArrayList<>(live.values());
+    }
+
+    @Override
+    public synchronized boolean put(Patient patient) {
+        if (patient == null || patient.getId() == null) {
+            Log.w(TAG, "Ignoring patient without ID");
+            return false;
+        }
+        if (!ensureWritable()) {
+            live.put(patient.getId(), patient); // saved by the next rewrite that succeeds
+            return false;
+        }
+        int dictionaryMark = -1;
+        try {
+            // Opening may start a new file, which resets appendCodec and the dictionary:
+            // encode only after that, or the frame would name strings the file never defines
+            if (appendStream == null) openAppendStream();
+            dictionaryMark = dictionary.size();
+            appendFrame(OP_PUT, appendCodec.encode(patient, dictionary));
+            live.put(patient.getId(), patient);
+            maybeCompact();
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error appending patient " + patient.getId(), e);
+            if (dictionaryMark >= 0) dictionary.truncate(dictionaryMark);
+            abortAppend();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(String patientId) {
+        if (patientId == null || !live.containsKey(patientId)) return false;
+        if (!ensureWritable()) {
+            live.remove(patientId);
+            return false;
+        }
+        try {
+            appendFrame(OP_DELETE, patientId.getBytes(StandardCharsets.UTF_8));
+            live.remove(patientId);
+            maybeCompact();
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error appending delete for " + patientId, e);
+            abortAppend();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean replaceAll(Collection<Patient> patients) {
+        live.clear();
+        if (patients != null) {
+            for (Patient p : patients) {
+                if (p != null && p.getId() != null) live.put(p.getId(), p);
+            }
+        }
+        return rewrite();
+    }
+
+    @Override
+    public synchronized boolean clear() {
+        live.clear();
+        return rewrite();
+    }
+
+    // ===== INTERNALS =====
+
+    private RecordCodec<Patient> codecFor(int codecId) {
+        if (codecId == codec.getId()) return codec;
+        if (codecId == JsonRecordCodec.ID) return jsonCodec;
+        if (codecId == BinaryModelCodecs.PATIENT_CODEC_ID) return BinaryModelCodecs.PATIENT;
+        return null;
+    }
+
+    private void applyFrame(byte[] frame, RecordCodec<Patient> fileCodec, int fileSchema) throws IOException {
+        byte op = frame[0];
+        if (op == OP_PUT) {
+            Patient p = fileCodec.decode(frame, 1, frame.length - 1, fileSchema, dictionary);
+            if (p != null && p.getId() != null) live.put(p.getId(), p);
+        } else if (op == OP_DELETE) {
+            live.remove(new String(frame, 1, frame.length - 1, StandardCharsets.UTF_8));
+        } else {
+            Log.w(TAG, "Skipping unknown frame op " + op);
+        }
+    }
+
+    // Appends to a file we can't encode for are refused until it has been rewritten
+    private boolean ensureWritable() {
+        if (appendCodec != null) return true;
+        Log.d(TAG, "Retrying patient log conversion before append");
+        return rewrite();
+    }
+
+    private void appendFrame(byte op, byte[] payload) throws IOException {
+        if (appendStream == null) openAppendStream();
+        byte[] frame = new byte[payload.length + 1];
+        frame[0] = op;
+        System.arraycopy(payload, 0, frame, 1, payload.length);
+        writeFrame(appendStream, frame);
+        appendStream.flush();
+        frameCount++;
+        validLength += FRAME_HEADER_SIZE + frame.length;
+    }
+
+    private void openAppendStream() throws IOException {
+        boolean fresh = !logFile.exists() || logFile.length() < HEADER_SIZE;
+        appendStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile, !fresh)));
+        if (fresh) {
+            appendCodec = codec;
+            dictionary = new StringDictionary();
+            writeHeader(appendStream);
+            validLength = HEADER_SIZE;
+        }
+    }
+
+    private void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(codec.getId());
+        out.writeInt(codec.getSchemaVersion());
+    }
+
+    private void closeAppendStream() {
+        if (appendStream == null) return;
+        try {
+            appendStream.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing patient log", e);
+        }
+        appendStream = null;
+    }
+
+    // A partly written frame would hide every frame appended after it, so cut it off
+    private void abortAppend() {
+        closeAppendStream();
+        if (logFile.exists() && logFile.length() > validLength) truncate(validLength);
+    }
+
+    private void maybeCompact() {
+        if (frameCount >= COMPACT_MIN_FRAMES && frameCount > 2 * live.size()) {
+            Log.d(TAG, "Compacting patient log: " + frameCount + " frames, " + live.size() + " live");
+            rewrite();
+        }
+    }
+
+    // Writes the live set to a temp file and atomically swaps it in
+    private boolean rewrite() {
+        closeAppendStream();
+        File tmp = new File(logFile.getPath() + ".tmp");
+        // Only adopted once the new file is in place; the old file keeps its own table
+        StringDictionary newDictionary = new StringDictionary();
+        long newLength = HEADER_SIZE;
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            writeHeader(out);
+            for (Patient p : live.values()) {
+                byte[] payload = codec.encode(p, newDictionary);
+                byte[] frame = new byte[payload.length + 1];
+                frame[0] = OP_PUT;
+                System.arraycopy(payload, 0, frame, 1, payload.length);
+                writeFrame(out, frame);
+                newLength += FRAME_HEADER_SIZE + frame.length;
+            }
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Error rewriting patient log", e);
+            tmp.delete();
+            return false;
+        }
+        if (!tmp.renameTo(logFile)) {
+            Log.e(TAG, "Could not replace patient log");
+            tmp.delete();
+            return false;
+        }
+        appendCodec = codec;
+        dictionary = newDictionary;
+        validLength = newLength;
+        frameCount = live.size();
+        Log.d(TAG, "Rewrote patient log with " + frameCount + " records");
+        return true;
+    }
+
+    private static void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+        out.writeInt(frame.length);
+        out.writeInt(checksum(frame));
+        out.write(frame);
+    }
+
+    private static int checksum(byte[] frame) {
+        CRC32 crc = new CRC32();
+        crc.update(frame, 0, frame.length);
+        return (int) crc.getValue();
+    }
+
+    private void truncate(long length) {
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            raf.setLength(length);
+        } catch (IOException e) {
+            Log.e(TAG, "Error truncating patient log", e);
+        }
+    }
+
+    private void quarantine() {
+        File aside = new File(logFile.getPath() + ".corrupt");
+        aside.delete();
+        if (!logFile.renameTo(aside)) logFile.delete();
+    }
+}
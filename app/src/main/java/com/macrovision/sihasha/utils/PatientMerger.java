@@ -0,0 +1,122 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The one path by which patient copies from Firebase enter the local list, whether
+ * they arrive as single child events or as a full snapshot.
+ *
+ * Each copy is looked up by ID and skipped when PatientVersions says this device
+ * already holds it (same stamp, same content hash), so a snapshot that changes
+ * nothing allocates nothing and leaves the list and its snapshot untouched. Only
+ * real inserts, updates and removals are applied, in place, keeping list order; they
+ * are returned as a ChangeSet for the caller to index, persist and announce.
+ *
+ * A complete snapshot also removes local records that have gone from the server, but
+ * only ones this session has seen there: a patient registered offline is never on the
+ * server yet and must survive until it is pushed.
+ *
+ * Not synchronized: DataManager calls it under the patients write lock.
+ */
+public class PatientMerger {
+
+    public static final class Result {
+        public final ChangeSet<Patient> changes;
+        // Merged records holding local edits the server lacks; push these back
+        public final List<Patient> pushBack;
+
+        Result(ChangeSet<Patient> changes, List<Patient> pushBack) {
+            this.changes = changes;
+            this.pushBack = pushBack;
+        }
+    }
+
+    private final KeyedList<Patient> patients;
+    private final PatientVersions versions;
+    // IDs seen on the server since this process started
+    private final Set<String> knownRemote = new HashSet<>();
+
+    public PatientMerger(KeyedList<Patient> patients, PatientVersions versions) {
+        this.patients = patients;
+        this.versions = versions;
+    }
+
+    // complete: the copies are everything the server holds in this device's sync scope,
+    // so absent IDs were deleted or moved out of it
+    public Result merge(Collection<Patient> remote, boolean complete) {
+        ChangeSet.Builder<Patient> changes = new ChangeSet.Builder<>();
+        List<Patient> pushBack = null;
+        Set<String> present = complete ? new HashSet<>() : null;
+
+        for (Patient copy : remote) {
+            if (copy == null || copy.getId() == null) continue;
+            String id = copy.getId();
+            knownRemote.add(id);
+            if (present != null) present.add(id);
+
+            Patient local = patients.get(id);
+            if (local != null && versions.isSameVersion(local, copy)) continue;
+
+            PatientVersions.MergeResult result = versions.merge(local, copy);
+            patients.put(result.merged);
+            if (local == null) {
+                changes.insert(result.merged);
+            } else {
+                changes.update(local, result.merged);
+            }
+            if (result.remoteBehind) {
+                if (pushBack == null) pushBack = new ArrayList<>();
+                pushBack.add(result.merged);
+            }
+        }
+
+        if (present != null && present.size() < patients.size()) {
+            for (Patient local : patients.snapshot()) {
+                String id = local.getId();
+                if (!present.contains(id) && knownRemote.contains(id)) removeLocal(id, changes);
+            }
+        }
+
+        return new Result(changes.build(),
+                pushBack != null ? pushBack : Collections.emptyList());
+    }
+
+    // A single record deleted on the server
+    public ChangeSet<Patient> remove(String patientId) {
+        ChangeSet.Builder<Patient> changes = new ChangeSet.Builder<>();
+        removeLocal(patientId, changes);
+        return changes.build();
+    }
+
+    // On a sync scope change: drops records outside the new scope that the server holds,
+    // since they can be downloaded again, and forgets which IDs were seen there
+    public ChangeSet<Patient> retain(Predicate<Patient> inScope) {
+        ChangeSet.Builder<Patient> changes = new ChangeSet.Builder<>();
+        for (Patient local : patients.snapshot()) {
+            if (!inScope.test(local) && knownRemote.contains(local.getId())) removeLocal(local.getId(), changes);
+        }
+        knownRemote.clear();
+        return changes.build();
+    }
+
+    // Forgets the IDs seen on the server, e.g. when local data is wiped
+    public void clear() {
+        knownRemote.clear();
+    }
+
+    private void removeLocal(String patientId, ChangeSet.Builder<Patient> changes) {
+        knownRemote.remove(patientId);
+        Patient removed = patients.remove(patientId);
+        if (removed == null) return;
+        versions.forget(patientId);
+        changes.remove(removed);
+    }
+}
@@ -0,0 +1,288 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Free-text patient search over name, husband's name, village, phone number and age.
+ *
+ * Each patient's fields are normalized once when it is indexed (lowercased, accents
+ * folded, phone reduced to digits) into a single search key, and every trigram of that
+ * key is posted to an inverted index of patient slots. A query term of three or more
+ * characters only verifies the patients in its rarest trigram's posting list, so the
+ * cost follows the number of candidates rather than the caseload. Shorter terms fall
+ * back to scanning the pre-normalized keys. Query terms are normalized the same way, so
+ * a number typed as "98765-43210" is matched by its digits, and a "+91" or "0" trunk
+ * prefix on a full number is dropped so "+91 98765 43210" finds "9876543210".
+ *
+ * Like PatientIndex, the trigrams a patient was indexed under are remembered per slot
+ * so in-place edits can be re-indexed. All methods are synchronized: queries run on
+ * the patient list's filter thread while edits arrive on the main thread.
+ */
+public class PatientSearchIndex {
+
+    // Separates fields in the search key so no match spans two of them
+    private static final char FIELD_SEPARATOR = '\u0001';
+
+    // Growable int set with O(1) add and swap-remove; order doesn't matter
+    private static class Posting {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final List<Patient> slots = new ArrayList<>();
+    private final List<String> slotKeys = new ArrayList<>();
+    private final List<long[]> slotTrigrams = new ArrayList<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+
+    private final Map<Long, Posting> postings = new HashMap<>();
+
+    // ===== MAINTENANCE =====
+
+    public synchronized void rebuild(Collection<Patient> patients) {
+        clear();
+        if (patients == null) return;
+        for (Patient p : patients) put(p);
+    }
+
+    public synchronized void clear() {
+        slots.clear();
+        slotKeys.clear();
+        slotTrigrams.clear();
+        slotById.clear();
+        freeSlots.clear();
+        postings.clear();
+    }
+
+    // Adds a patient, or re-indexes it if the ID is already known
+    public synchronized void put(Patient patient) {
+        if (patient == null || patient.getId() == null) return;
+
+        String key = buildKey(patient);
+        Integer slot = slotById.get(patient.getId());
+        if (slot != null) {
+            slots.set(slot, patient);
+            if (key.equals(slotKeys.get(slot))) return; // searchable fields unchanged
+            unlink(slot);
+        } else {
+            slot = allocateSlot();
+            slotById.put(patient.getId(), slot);
+        }
+
+        long[] trigrams = trigramsOf(key);
+        slots.set(slot, patient);
+        slotKeys.set(slot, key);
+        slotTrigrams.set(slot, trigrams);
+        for (long trigram : trigrams) {
+            Posting posting = postings.get(trigram);
+            if (posting == null) {
+                posting = new Posting();
+                postings.put(trigram, posting);
+            }
+            posting.add(slot);
+        }
+    }
+
+    public synchronized void remove(String patientId) {
+        if (patientId == null) return;
+        Integer slot = slotById.remove(patientId);
+        if (slot == null) return;
+        unlink(slot);
+        slots.set(slot, null);
+        slotKeys.set(slot, null);
+        slotTrigrams.set(slot, null);
+        freeSlots.push(slot);
+    }
+
+    private int allocateSlot() {
+        if (!freeSlots.isEmpty()) return freeSlots.pop();
+        slots.add(null);
+        slotKeys.add(null);
+        slotTrigrams.add(null);
+        return slots.size() - 1;
+    }
+
+    private void unlink(int slot) {
+        long[] trigrams = slotTrigrams.get(slot);
+        if (trigrams == null) return;
+        for (long trigram : trigrams) {
+            Posting posting = postings.get(trigram);
+            if (posting == null) continue;
+            posting.remove(slot);
+            if (posting.size == 0) postings.remove(trigram);
+        }
+    }
+
+    // ===== QUERIES =====
+
+    // Patients matching every whitespace-separated term of the query, as substrings
+    public synchronized List<Patient> search(String query) {
+        List<Patient> result = new ArrayList<>();
+        String[] terms = termsOf(query);
+        if (terms.length == 0) return result;
+
+        Posting candidates = null;
+        for (String term : terms) {
+            if (term.length() < 3) continue;
+            Posting rarest = rarestPosting(term);
+            if (rarest == null) return result; // some trigram occurs nowhere
+            if (candidates == null || rarest.size < candidates.size) candidates = rarest;
+        }
+
+        if (candidates != null) {
+            for (int i = 0; i < candidates.size; i++) {
+                int slot = candidates.slots[i];
+                if (matchesAll(slotKeys.get(slot), terms)) result.add(slots.get(slot));
+            }
+        } else {
+            for (int slot = 0; slot < slots.size(); slot++) {
+                String key = slotKeys.get(slot);
+                if (key != null && matchesAll(key, terms)) result.add(slots.get(slot));
+            }
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return slotById.size();
+    }
+
+    private Posting rarestPosting(String term) {
+        Posting rarest = null;
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            Posting posting = postings.get(pack(term, i));
+            if (posting == null) return null;
+            if (rarest == null || posting.size < rarest.size) rarest = posting;
+        }
+        return rarest;
+    }
+
+    private static boolean matchesAll(String key, String[] terms) {
+        for (String term : terms) {
+            if (!key.contains(term)) return false;
+        }
+        return true;
+    }
+
+    // ===== NORMALIZATION =====
+
+    // A query that reads as one phone number becomes its digits; otherwise each term
+    // that contains a digit is reduced to its digits, as phones are in the key
+    static String[] termsOf(String query) {
+        String normalized = normalize(query).trim();
+        if (normalized.isEmpty()) return new String[0];
+        if (isPhoneNumber(normalized)) return new String[] { queryDigits(normalized) };
+        String[] terms = normalized.split("\\s+");
+        for (int i = 0; i < terms.length; i++) {
+            if (hasDigit(terms[i])) terms[i] = queryDigits(terms[i]);
+        }
+        return terms;
+    }
+
+    // A 10-digit mobile number typed with its country code (91) or trunk zero is matched
+    // on the 10 digits, which is how most numbers are stored
+    private static String queryDigits(String term) {
+        String digits = digitsOf(term);
+        if (digits.length() == 12 && digits.startsWith("91")) return digits.substring(2);
+        if (digits.length() == 11 && digits.startsWith("0")) return digits.substring(1);
+        return digits;
+    }
+
+    // Digits with the usual separators: "+91 98765-43210", "(0674) 2301234"
+    private static boolean isPhoneNumber(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if ("0123456789+-(). ".indexOf(value.charAt(i)) < 0) return false;
+        }
+        return hasDigit(value);
+    }
+
+    private static boolean hasDigit(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') return true;
+        }
+        return false;
+    }
+
+    private static String buildKey(Patient p) {
+        StringBuilder key = new StringBuilder(64);
+        appendField(key, normalize(p.getName()));
+        appendField(key, normalize(p.getHusbandName()));
+        appendField(key, normalize(p.getVillage()));
+        appendField(key, digitsOf(p.getPhoneNumber()));
+        appendField(key, String.valueOf(p.getAge()));
+        return key.toString();
+    }
+
+    private static void appendField(StringBuilder key, String value) {
+        if (value == null || value.isEmpty()) return;
+        if (key.length() > 0) key.append(FIELD_SEPARATOR);
+        key.append(value);
+    }
+
+    // Lowercases and strips Latin accents ("Pūjā" -> "puja"); other scripts pass through
+    static String normalize(String value) {
+        if (value == null) return "";
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (c >= '\u0300' && c <= '\u036F') continue; // combining diacritical marks
+            out.append(c);
+        }
+        return out.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static String digitsOf(String phone) {
+        if (phone == null) return "";
+        StringBuilder out = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') out.append(c);
+        }
+        return out.toString();
+    }
+
+    // Distinct trigrams of the key, skipping any that straddle a field boundary
+    private static long[] trigramsOf(String key) {
+        HashSet<Long> seen = new HashSet<>();
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            if (key.charAt(i) == FIELD_SEPARATOR || key.charAt(i + 1) == FIELD_SEPARATOR
+                    || key.charAt(i + 2) == FIELD_SEPARATOR) continue;
+            seen.add(pack(key, i));
+        }
+        long[] trigrams = new long[seen.size()];
+        int n = 0;
+        for (long trigram : seen) trigrams[n++] = trigram;
+        return trigrams;
+    }
+
+    private static long pack(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
@@ -0,0 +1,28 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persistence engine for patient records used by DataManager.
+ * Point operations (put/remove) should cost O(record), not O(all patients).
+ */
+public interface PatientStore {
+
+    // Reads every live record from disk
+    List<Patient> loadAll();
+
+    // Inserts or replaces a single record
+    boolean put(Patient patient);
+
+    // Removes a single record by ID
+    boolean remove(String patientId);
+
+    // Rewrites the whole store with exactly these records
+    boolean replaceAll(Collection<Patient> patients);
+
+    // Drops every record
+    boolean clear();
+}
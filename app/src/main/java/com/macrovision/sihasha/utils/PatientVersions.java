@@ -0,0 +1,332 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Version stamps and field-level merging for patients that are edited both on this
+ * device and elsewhere.
+ *
+ * Every local edit ticks a Lamport clock and stamps the record (version, updatedAt,
+ * updatedBy) and each field that changed (fieldVersions). When a copy arrives from
+ * Firebase, merge() keeps, field by field, whichever side was edited later; an offline
+ * edit to the phone number therefore survives a sync that brings in a doctor's
+ * referral. Fields never edited since creation carry stamp 0. On equal stamps the
+ * remote value wins, so every device settles on what the server holds.
+ *
+ * Screens edit Patient objects in place, so "what changed" is found by comparing the
+ * record with the field values remembered when it was last stamped or merged. A 64-bit
+ * hash of those values is kept too, so deciding that a remote copy is unchanged costs
+ * one pass over its fields and no allocation.
+ * Not synchronized: DataManager calls it under the patients write lock.
+ */
+public class PatientVersions {
+
+    private static final class Field<V> {
+        final String name;
+        final Function<Patient, V> getter;
+        final BiConsumer<Patient, V> setter;
+
+        Field(String name, Function<Patient, V> getter, BiConsumer<Patient, V> setter) {
+            this.name = name;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        void copy(Patient from, Patient to) {
+            setter.accept(to, getter.apply(from));
+        }
+
+        @SuppressWarnings("unchecked")
+        void set(Patient to, Object value) {
+            setter.accept(to, (V) value);
+        }
+    }
+
+    private static <V> Field<V> field(String name, Function<Patient, V> getter, BiConsumer<Patient, V> setter) {
+        return new Field<>(name, getter, setter);
+    }
+
+    // Everything a user can edit; the names match the JSON/Firebase keys
+    private static final Field<?>[] FIELDS = {
+            field("name", Patient::getName, Patient::setName),
+            field("husbandName", Patient::getHusbandName, Patient::setHusbandName),
+            field("age", Patient::getAge, Patient::setAge),
+            field("phoneNumber", Patient::getPhoneNumber, Patient::setPhoneNumber),
+            field("address", Patient::getAddress, Patient::setAddress),
+            field("village", Patient::getVillage, Patient::setVillage),
+            field("block", Patient::getBlock, Patient::setBlock),
+            field("district", Patient::getDistrict, Patient::setDistrict),
+            field("aadharNumber", Patient::getAadharNumber, Patient::setAadharNumber),
+            field("bankAccount", Patient::getBankAccount, Patient::setBankAccount),
+            field("ifscCode", Patient::getIfscCode, Patient::setIfscCode),
+            field("religion", Patient::getReligion, Patient::setReligion),
+            field("caste", Patient::getCaste, Patient::setCaste),
+            field("education", Patient::getEducation, Patient::setEducation),
+            field("occupation", Patient::getOccupation, Patient::setOccupation),
+            field("economicStatus", Patient::getEconomicStatus, Patient::setEconomicStatus),
+            field("pregnancyNumber", Patient::getPregnancyNumber, Patient::setPregnancyNumber),
+            field("liveChildren", Patient::getLiveChildren, Patient::setLiveChildren),
+            field("previousAbortions", Patient::getPreviousAbortions, Patient::setPreviousAbortions),
+            field("lmpDate", Patient::getLmpDate, Patient::setLmpDate),
+            field("eddDate", Patient::getEddDate, Patient::setEddDate),
+            field("pregnancyStatus", Patient::getPregnancyStatus, Patient::setPregnancyStatus),
+            field("riskFactors", Patient::getRiskFactors, Patient::setRiskFactors),
+            field("height", Patient::getHeight, Patient::setHeight),
+            field("bloodGroup", Patient::getBloodGroup, Patient::setBloodGroup),
+            field("registrationDate", Patient::getRegistrationDate, Patient::setRegistrationDate),
+            field("ashaId", Patient::getAshaId, Patient::setAshaId),
+            field("phcId", Patient::getPhcId, Patient::setPhcId),
+            field("isHighRisk", Patient::isHighRisk, Patient::setHighRisk),
+            field("assignedDoctor", Patient::getAssignedDoctor, Patient::setAssignedDoctor),
+            field("lastVisit", Patient::getLastVisit, Patient::setLastVisit),
+            field("isReferred", Patient::isReferred, Patient::setReferred),
+            field("referredTo", Patient::getReferredTo, Patient::setReferredTo),
+            field("referredBy", Patient::getReferredBy, Patient::setReferredBy),
+            field("referralDate", Patient::getReferralDate, Patient::setReferralDate),
+            field("referralStatus", Patient::getReferralStatus, Patient::setReferralStatus),
+    };
+
+    public static final class MergeResult {
+        public final Patient merged;
+        // The merged record differs from what this device had
+        public final boolean localChanged;
+        // This device had edits the remote copy lacks; push the merged record back
+        public final boolean remoteBehind;
+
+        MergeResult(Patient merged, boolean localChanged, boolean remoteBehind) {
+            this.merged = merged;
+            this.localChanged = localChanged;
+            this.remoteBehind = remoteBehind;
+        }
+    }
+
+    private static final class Baseline {
+        final Object[] values;
+        final long hash;
+
+        Baseline(Object[] values) {
+            this.values = values;
+            this.hash = hashOf(values);
+        }
+    }
+
+    private final String writerId;
+    private long clock;
+    // Field values as of the last stamp or merge, per patient ID
+    private final Map<String, Baseline> baselines = new HashMap<>();
+
+    public PatientVersions(String writerId) {
+        this.writerId = writerId;
+    }
+
+    // ===== MAINTENANCE =====
+
+    public void rebuild(Collection<Patient> patients) {
+        clear();
+        if (patients == null) return;
+        for (Patient p : patients) {
+            if (p == null || p.getId() == null) continue;
+            observe(p);
+            remember(p);
+        }
+    }
+
+    public void clear() {
+        baselines.clear();
+    }
+
+    public void forget(String patientId) {
+        if (patientId != null) baselines.remove(patientId);
+    }
+
+    // ===== LOCAL EDITS =====
+
+    // Stamps every field changed since the record was last seen and returns true,
+    // or returns false if nothing changed. A record new to this device gets a
+    // version but no field stamps: nobody else can have edited it yet.
+    // stored is the record currently held for this ID, if any.
+    public boolean stampLocalEdit(Patient p, Patient stored) {
+        if (p == null || p.getId() == null) return false;
+        // A fresh object for an existing record carries on from the stored stamps
+        if (stored != null && stored != p && p.getVersion() < stored.getVersion()) {
+            p.setVersion(stored.getVersion());
+            p.setUpdatedAt(stored.getUpdatedAt());
+            p.setUpdatedBy(stored.getUpdatedBy());
+            p.setFieldVersions(stored.getFieldVersions() != null ? new HashMap<>(stored.getFieldVersions()) : null);
+        }
+        Baseline baseline = baselines.get(p.getId());
+        Object[] now = valuesOf(p);
+        if (baseline == null) {
+            stamp(p, tick(p));
+            baselines.put(p.getId(), new Baseline(now));
+            return true;
+        }
+
+        Object[] before = baseline.values;
+        long stamp = 0;
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (Objects.deepEquals(before[i], now[i])) continue;
+            if (stamp == 0) stamp = tick(p);
+            fieldVersionsOf(p).put(FIELDS[i].name, stamp);
+        }
+        if (stamp == 0) return false;
+        stamp(p, stamp);
+        baselines.put(p.getId(), new Baseline(now));
+        return true;
+    }
+
+    // The record as last stamped or merged: its remembered field values on a new object
+    // carrying p's ID and stamps. A screen that edits the stored object in place leaves
+    // nothing else holding the old values, so call this before stampLocalEdit.
+    public Patient copyAsRemembered(Patient p) {
+        Baseline baseline = baselines.get(p.getId());
+        Patient copy = new Patient();
+        copy.setId(p.getId());
+        for (int i = 0; i < FIELDS.length; i++) {
+            Object value = baseline != null ? baseline.values[i] : FIELDS[i].getter.apply(p);
+            FIELDS[i].set(copy, value instanceof String[] ? ((String[]) value).clone() : value);
+        }
+        copy.setVersion(p.getVersion());
+        copy.setUpdatedAt(p.getUpdatedAt());
+        copy.setUpdatedBy(p.getUpdatedBy());
+        copy.setFieldVersions(p.getFieldVersions() != null ? new HashMap<>(p.getFieldVersions()) : null);
+        return copy;
+    }
+
+    // ===== REMOTE COPIES =====
+
+    // True when the remote copy carries exactly the edit this device already has.
+    // The content hash also catches older builds, which rewrite fields without
+    // touching the stamps.
+    public boolean isSameVersion(Patient local, Patient remote) {
+        if (local.getVersion() != remote.getVersion()
+                || !Objects.equals(local.getUpdatedBy(), remote.getUpdatedBy())) {
+            return false;
+        }
+        Baseline baseline = baselines.get(local.getId());
+        long localHash = baseline != null ? baseline.hash : contentHash(local);
+        return localHash == contentHash(remote);
+    }
+
+    public static long contentHash(Patient p) {
+        long hash = FNV_OFFSET;
+        for (Field<?> field : FIELDS) hash = mix(hash, field.getter.apply(p));
+        return hash;
+    }
+
+    // Field-by-field merge of a copy from Firebase into the local record. The merged
+    // record is built on the remote object; neither input is otherwise modified.
+    public MergeResult merge(Patient local, Patient remote) {
+        observe(remote);
+        if (local == null) {
+            remember(remote);
+            return new MergeResult(remote, true, false);
+        }
+
+        Map<String, Long> localStamps = local.getFieldVersions();
+        Map<String, Long> remoteStamps = remote.getFieldVersions();
+        Map<String, Long> mergedStamps = remoteStamps != null ? new HashMap<>(remoteStamps) : null;
+        boolean localChanged = false;
+        boolean remoteBehind = local.getVersion() > remote.getVersion();
+
+        for (Field<?> field : FIELDS) {
+            long localStamp = stampOf(localStamps, field.name);
+            long remoteStamp = stampOf(remoteStamps, field.name);
+            if (localStamp > remoteStamp) {
+                field.copy(local, remote);
+                if (mergedStamps == null) mergedStamps = new HashMap<>();
+                mergedStamps.put(field.name, localStamp);
+                remoteBehind = true;
+            } else if (!Objects.deepEquals(field.getter.apply(local), field.getter.apply(remote))) {
+                localChanged = true;
+            }
+        }
+
+        remote.setFieldVersions(mergedStamps);
+        // The merge itself is a new version, so the other side doesn't skip it as already seen
+        if (remoteBehind) stamp(remote, tick(remote));
+        remember(remote);
+        return new MergeResult(remote, localChanged, remoteBehind);
+    }
+
+    // ===== HELPERS =====
+
+    private long tick(Patient p) {
+        clock = Math.max(clock, p.getVersion()) + 1;
+        return clock;
+    }
+
+    private void observe(Patient p) {
+        clock = Math.max(clock, p.getVersion());
+    }
+
+    private void stamp(Patient p, long stamp) {
+        p.setVersion(stamp);
+        p.setUpdatedAt(System.currentTimeMillis());
+        p.setUpdatedBy(writerId);
+    }
+
+    private static Map<String, Long> fieldVersionsOf(Patient p) {
+        Map<String, Long> stamps = p.getFieldVersions();
+        if (stamps == null) {
+            stamps = new HashMap<>();
+            p.setFieldVersions(stamps);
+        }
+        return stamps;
+    }
+
+    private static long stampOf(Map<String, Long> stamps, String field) {
+        Long stamp = stamps != null ? stamps.get(field) : null;
+        return stamp != null ? stamp : 0;
+    }
+
+    private void remember(Patient p) {
+        baselines.put(p.getId(), new Baseline(valuesOf(p)));
+    }
+
+    // FNV-1a over the field values; strings are hashed by content, not identity
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static long hashOf(Object[] values) {
+        long hash = FNV_OFFSET;
+        for (Object value : values) hash = mix(hash, value);
+        return hash;
+    }
+
+    private static long mix(long hash, Object value) {
+        if (value == null) {
+            return (hash ^ 0xff) * FNV_PRIME;
+        }
+        if (value instanceof String) {
+            String s = (String) value;
+            for (int i = 0; i < s.length(); i++) hash = (hash ^ s.charAt(i)) * FNV_PRIME;
+            return (hash ^ 0xfe) * FNV_PRIME;
+        }
+        if (value instanceof String[]) {
+            for (String item : (String[]) value) hash = mix(hash, item);
+            return (hash ^ 0xfd) * FNV_PRIME;
+        }
+        if (value instanceof Boolean) {
+            return (hash ^ ((Boolean) value ? 1 : 2)) * FNV_PRIME;
+        }
+        return (hash ^ value.hashCode()) * FNV_PRIME;
+    }
+
+    private static Object[] valuesOf(Patient p) {
+        Object[] values = new Object[FIELDS.length];
+        for (int i = 0; i < FIELDS.length; i++) {
+            Object value = FIELDS[i].getter.apply(p);
+            // Arrays are edited in place too, so remember a copy
+            values[i] = value instanceof String[] ? ((String[]) value).clone() : value;
+        }
+        return values;
+    }
+}
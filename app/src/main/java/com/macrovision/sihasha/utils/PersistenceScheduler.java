@@ -0,0 +1,152 @@
+package com.macrovision.sihasha.utils;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Debounces DataManager persistence.
+ *
+ * Each collection registers a Flusher under its storage key. Edits only mark the key
+ * dirty; once per flush window every dirty collection is snapshotted on the main
+ * thread and written once on the BackgroundWriter. Pending writes are also flushed
+ * when any activity pauses or the app's UI is hidden, so nothing waits on a timer
+ * that may never fire before the process is killed.
+ *
+ * Locking: markDirty is called with DataManager's stripe locks held, and snapshots take
+ * those same locks. So this object's monitor is only held to update the dirty set,
+ * never while a Flusher runs. Flushes are serialized on flushLock instead, which keeps
+ * each collection's writes reaching the writer in snapshot order.
+ */
+public class PersistenceScheduler {
+    private static final String TAG = "PersistenceScheduler";
+
+    public static final long DEFAULT_FLUSH_WINDOW_MS = 1000;
+
+    public interface Flusher {
+        // Called on the flushing thread, usually main: capture what to write and return
+        // the write itself, which then runs on the background writer
+        Runnable snapshot();
+    }
+
+    private final BackgroundWriter writer;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Flusher> flushers = new LinkedHashMap<>();
+    private final Set<String> incrementalKeys = new HashSet<>();
+    private final Set<String> dirty = new LinkedHashSet<>();
+    private final Object flushLock = new Object();
+    private final Runnable flushTask = this::flushNow;
+
+    private long flushWindowMs = DEFAULT_FLUSH_WINDOW_MS;
+    private boolean flushScheduled = false;
+
+    public PersistenceScheduler(BackgroundWriter writer) {
+        this.writer = writer;
+    }
+
+    // Each write is a full snapshot, so a newer one can replace one still queued
+    public synchronized void registerSnapshot(String key, Flusher flusher) {
+        flushers.put(key, flusher);
+        incrementalKeys.remove(key);
+    }
+
+    // Each write is a delta on top of the previous ones, so every write must run, in order
+    public synchronized void registerIncremental(String key, Flusher flusher) {
+        flushers.put(key, flusher);
+        incrementalKeys.add(key);
+    }
+
+    public synchronized void setFlushWindow(long windowMs) {
+        flushWindowMs = Math.max(0, windowMs);
+    }
+
+    public synchronized long getFlushWindow() {
+        return flushWindowMs;
+    }
+
+    public synchronized void markDirty(String key) {
+        dirty.add(key);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            mainHandler.postDelayed(flushTask, flushWindowMs);
+        }
+    }
+
+    public synchronized boolean hasPendingWrites() {
+        return !dirty.isEmpty();
+    }
+
+    // Writes every dirty collection now instead of at the end of the window
+    public void flushNow() {
+        synchronized (flushLock) {
+            List<String> keys;
+            synchronized (this) {
+                mainHandler.removeCallbacks(flushTask);
+                flushScheduled = false;
+                if (dirty.isEmpty()) return;
+                keys = new ArrayList<>(dirty);
+                dirty.clear();
+            }
+
+            for (String key : keys) {
+                Flusher flusher;
+                boolean incremental;
+                synchronized (this) {
+                    flusher = flushers.get(key);
+                    incremental = incrementalKeys.contains(key);
+                }
+                if (flusher == null) {
+                    Log.w(TAG, "No flusher registered for " + key);
+                    continue;
+                }
+                try {
+                    Runnable write = flusher.snapshot();
+                    if (write == null) continue;
+                    if (incremental) {
+                        writer.execute(write);
+                    } else {
+                        writer.enqueueLatest(key, write);
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error snapshotting " + key, e);
+                }
+            }
+            Log.d(TAG, "Flushed " + keys.size() + " collections");
+        }
+    }
+
+    // Flush whenever the user leaves a screen or the app goes to the background
+    public void attach(Application application) {
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override public void onActivityPaused(Activity activity) { flushNow(); }
+            @Override public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+            @Override public void onActivityStarted(Activity activity) {}
+            @Override public void onActivityResumed(Activity activity) {}
+            @Override public void onActivityStopped(Activity activity) {}
+            @Override public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+            @Override public void onActivityDestroyed(Activity activity) {}
+        });
+        application.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_UI_HIDDEN) flushNow();
+            }
+
+            @Override public void onConfigurationChanged(Configuration newConfig) {}
+            @Override public void onLowMemory() { flushNow(); }
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package com.macrovision.sihasha.utils;
+
+import java.io.IOException;
+
+/**
+ * Encodes one model record to bytes and back, for the on-disk stores.
+ *
+ * Stores write getId() and getSchemaVersion() into their file header and hand the
+ * header's schema version back to decode(), so a codec can keep reading files written
+ * by older layouts. The dictionary carries repeated strings across all records of one
+ * file; codecs that don't use it just ignore it.
+ */
+public interface RecordCodec<T> {
+
+    int getId();
+
+    int getSchemaVersion();
+
+    byte[] encode(T record, StringDictionary dictionary) throws IOException;
+
+    T decode(byte[] data, int offset, int length, int schemaVersion, StringDictionary dictionary) throws IOException;
+}
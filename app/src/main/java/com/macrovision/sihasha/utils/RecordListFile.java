@@ -0,0 +1,182 @@
+package com.macrovision.sihasha.utils;
+
+import android.util.Log;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A list of records in its own file, read and written one record at a time.
+ *
+ * Unlike a SharedPreferences string, neither the whole file nor a parse tree is ever
+ * held in memory: loading keeps one record in flight plus the resulting list.
+ * Two formats are understood and told apart by their first bytes:
+ * a JSON array (streamed with JsonReader/JsonWriter over a FileChannel), or
+ * [magic][version][codec id][schema version][count] followed by length-prefixed
+ * records from a binary RecordCodec. Both are always readable; writeBinary picks
+ * which one is written.
+ * Writes go to a temp file that is synced and renamed over the original.
+ */
+public class RecordListFile<T> {
+    private static final String TAG = "RecordListFile";
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final int MAGIC = 0x5243444C; // "RCDL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+
+    private final File file;
+    private final TypeAdapter<T> adapter;
+    private final RecordCodec<T> binaryCodec;
+    private final boolean writeBinary;
+
+    public RecordListFile(File file, TypeAdapter<T> adapter, RecordCodec<T> binaryCodec, boolean writeBinary) {
+        this.file = file;
+        this.adapter = adapter;
+        this.binaryCodec = binaryCodec;
+        this.writeBinary = writeBinary;
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    public List<T> readAll() throws IOException {
+        if (!file.exists()) return new ArrayList<>();
+        return isBinary() ? readBinary() : readJson();
+    }
+
+    public boolean writeAll(Collection<T> items) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             FileChannel channel = fos.getChannel()) {
+            if (writeBinary) {
+                writeBinary(fos, items);
+            } else {
+                writeJson(channel, items);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing " + file.getName(), e);
+            tmp.delete();
+            return false;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "Could not replace " + file.getName());
+            tmp.delete();
+            return false;
+        }
+        return true;
+    }
+
+    public boolean delete() {
+        return !file.exists() || file.delete();
+    }
+
+    // ===== JSON =====
+
+    private List<T> readJson() throws IOException {
+        List<T> items = new ArrayList<>();
+        try (FileInputStream fis = new FileInputStream(file);
+             FileChannel channel = fis.getChannel();
+             JsonReader reader = new JsonReader(new BufferedReader(
+                     Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1), BUFFER_SIZE))) {
+            if (reader.peek() == JsonToken.NULL) return items;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                T item = adapter.read(reader);
+                if (item != null) items.add(item);
+            }
+            reader.endArray();
+        }
+        return items;
+    }
+
+    private void writeJson(FileChannel channel, Collection<T> items) throws IOException {
+        JsonWriter writer = new JsonWriter(new BufferedWriter(
+                Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1), BUFFER_SIZE));
+        writer.setSerializeNulls(false); // same output as Gson.toJson
+        writer.beginArray();
+        for (T item : items) adapter.write(writer, item);
+        writer.endArray();
+        writer.flush();
+    }
+
+    // ===== BINARY =====
+
+    private boolean isBinary() throws IOException {
+        if (file.length() < 4) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        }
+    }
+
+    private List<T> readBinary() throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            in.readInt(); // magic
+            int version = in.readInt();
+            int codecId = in.readInt();
+            int schemaVersion = in.readInt();
+            if (version != FORMAT_VERSION || codecId != binaryCodec.getId()) {
+                throw new IOException("Can't read " + file.getName() + ": format " + version + ", codec " + codecId);
+            }
+
+            int count = in.readInt();
+            List<T> items = new ArrayList<>(Math.max(0, count));
+            StringDictionary dictionary = new StringDictionary();
+            byte[] buffer = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_RECORD_SIZE) throw new IOException("Bad record length " + length);
+                if (length > buffer.length) buffer = new byte[Math.max(length, buffer.length * 2)];
+                in.readFully(buffer, 0, length);
+                T item = binaryCodec.decode(buffer, 0, length, schemaVersion, dictionary);
+                if (item != null) items.add(item);
+            }
+            return items;
+        }
+    }
+
+    private void writeBinary(FileOutputStream fos, Collection<T> items) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(binaryCodec.getId());
+        out.writeInt(binaryCodec.getSchemaVersion());
+
+        int count = 0;
+        for (T item : items) {
+            if (item != null) count++;
+        }
+        out.writeInt(count);
+
+        StringDictionary dictionary = new StringDictionary();
+        for (T item : items) {
+            if (item == null) continue;
+            byte[] record = binaryCodec.encode(item, dictionary);
+            out.writeInt(record.length);
+            out.write(record);
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,50 @@
+package com.macrovision.sihasha.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-file table of repeated strings (village, block, pregnancyStatus, ...).
+ * The first occurrence is written inline and gets the next index; later ones are
+ * written as that index. Writer and reader build identical tables by seeing the
+ * records in the same order.
+ */
+public class StringDictionary {
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    // -1 if the value has no entry yet
+    public int indexOf(String value) {
+        Integer index = indexes.get(value);
+        return index != null ? index : -1;
+    }
+
+    public String get(int index) {
+        return values.get(index);
+    }
+
+    public int add(String value) {
+        int index = values.size();
+        values.add(value);
+        indexes.put(value, index);
+        return index;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    // Forgets every entry added after the table had this size, e.g. for a record that never reached disk
+    public void truncate(int size) {
+        while (values.size() > size) {
+            indexes.remove(values.remove(values.size() - 1));
+        }
+    }
+
+    public void clear() {
+        values.clear();
+        indexes.clear();
+    }
+}
@@ -0,0 +1,106 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+import com.macrovision.sihasha.models.Staff;
+import com.macrovision.sihasha.models.User;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide canonical instances for low-cardinality model strings.
+ *
+ * A PHC has a few dozen distinct villages, blocks, statuses and worker IDs, but every
+ * deserialized record used to carry its own copies. Records coming from disk or
+ * Firebase are passed through here so equal values share one instance.
+ * The pool is seeded with the literals the UI compares against, so
+ * "pregnant".equals(p.getPregnancyStatus()) hits String.equals' identity check
+ * instead of comparing characters.
+ */
+public final class StringPool {
+
+    // Guard against a high-cardinality field being routed here by mistake
+    private static final int MAX_ENTRIES = 8192;
+
+    private static final ConcurrentHashMap<String, String> POOL = new ConcurrentHashMap<>();
+
+    static {
+        String[] literals = {
+                "pregnant", "delivered", "postpartum",
+                "asha", "phcdoctor", "phcnurse", "phcadmin",
+                "pending", "accepted", "rejected", "none",
+                "active", "inactive", "on_leave",
+                "high", "medium", "low"
+        };
+        for (String literal : literals) POOL.put(literal, literal);
+    }
+
+    private StringPool() {}
+
+    public static String canonical(String value) {
+        if (value == null) return null;
+        String existing = POOL.get(value);
+        if (existing != null) return existing;
+        if (POOL.size() >= MAX_ENTRIES) return value;
+        existing = POOL.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    public static int size() {
+        return POOL.size();
+    }
+
+    // ===== MODEL HELPERS =====
+    // For objects built by something other than ModelTypeAdapters/BinaryModelCodecs, e.g. Firebase
+
+    public static Patient canonicalize(Patient p) {
+        if (p == null) return null;
+        p.setVillage(canonical(p.getVillage()));
+        p.setBlock(canonical(p.getBlock()));
+        p.setDistrict(canonical(p.getDistrict()));
+        p.setReligion(canonical(p.getReligion()));
+        p.setCaste(canonical(p.getCaste()));
+        p.setEducation(canonical(p.getEducation()));
+        p.setOccupation(canonical(p.getOccupation()));
+        p.setEconomicStatus(canonical(p.getEconomicStatus()));
+        p.setPregnancyStatus(canonical(p.getPregnancyStatus()));
+        p.setBloodGroup(canonical(p.getBloodGroup()));
+        p.setAshaId(canonical(p.getAshaId()));
+        p.setPhcId(canonical(p.getPhcId()));
+        p.setAssignedDoctor(canonical(p.getAssignedDoctor()));
+        p.setReferredTo(canonical(p.getReferredTo()));
+        p.setReferredBy(canonical(p.getReferredBy()));
+        p.setReferralStatus(canonical(p.getReferralStatus()));
+        String[] riskFactors = p.getRiskFactors();
+        if (riskFactors != null) {
+            for (int i = 0; i < riskFactors.length; i++) riskFactors[i] = canonical(riskFactors[i]);
+        }
+        return p;
+    }
+
+    public static User canonicalize(User user) {
+        if (user == null) return null;
+        user.setRole(canonical(user.getRole()));
+        user.setVillage(canonical(user.getVillage()));
+        user.setBlock(canonical(user.getBlock()));
+        user.setDistrict(canonical(user.getDistrict()));
+        user.setState(canonical(user.getState()));
+        user.setPhcId(canonical(user.getPhcId()));
+        return user;
+    }
+
+    public static Staff canonicalize(Staff staff) {
+        if (staff == null) return null;
+        staff.setRole(canonical(staff.getRole()));
+        staff.setVillage(canonical(staff.getVillage()));
+        staff.setBlock(canonical(staff.getBlock()));
+        staff.setDistrict(canonical(staff.getDistrict()));
+        staff.setState(canonical(staff.getState()));
+        staff.setPhcId(canonical(staff.getPhcId()));
+        staff.setPhcName(canonical(staff.getPhcName()));
+        staff.setQualification(canonical(staff.getQualification()));
+        staff.setSpecialization(canonical(staff.getSpecialization()));
+        staff.setStatus(canonical(staff.getStatus()));
+        staff.setDesignation(canonical(staff.getDesignation()));
+        return staff;
+    }
+}
@@ -0,0 +1,245 @@
+package com.macrovision.sihasha.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes waiting to reach Firebase, kept until the server confirms them.
+ *
+ * Each entry is the latest value for one database path (null deletes it), so ten
+ * offline edits to a patient leave one entry. takeBatch() hands out the oldest entries
+ * as one multi-path update; they stay in the outbox, and in every saved copy of it,
+ * until the batch succeeds. A failed batch goes back to the front of the queue and
+ * the next attempt waits with exponential backoff. A newer write to a path that is in
+ * flight replaces it only once the batch is settled. A batch Firebase refuses outright
+ * (a bad key or value) can never succeed, so it is resent one entry at a time and the
+ * entry that is refused on its own is dropped.
+ *
+ * Every change hands the whole queue to the Store, so it survives process death.
+ */
+public class SyncOutbox<T> {
+
+    public static final long MIN_BACKOFF_MS = 2_000;
+    public static final long MAX_BACKOFF_MS = 5 * 60_000;
+
+    public interface Store<T> {
+        // Called with the full, ordered queue after every change
+        void save(List<Entry<T>> entries);
+    }
+
+    public static final class Entry<T> {
+        public final String path;
+        public final T value; // null deletes the path
+        // When the oldest unsent write to this path was made
+        public final long enqueuedAt;
+
+        public Entry(String path, T value, long enqueuedAt) {
+            this.path = path;
+            this.value = value;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    public static final class Stats {
+        public final int queueDepth;
+        public final int inFlight;
+        // Age of the oldest write the server hasn't confirmed; 0 when empty
+        public final long oldestPendingMs;
+        // Enqueue-to-confirm time of the oldest write in the last successful batch
+        public final long lastBatchLagMs;
+        public final int consecutiveFailures;
+        // Writes dropped because Firebase refused them, since start-up
+        public final int rejected;
+        public final String lastError;
+
+        Stats(int queueDepth, int inFlight, long oldestPendingMs, long lastBatchLagMs,
+              int consecutiveFailures, int rejected, String lastError) {
+            this.queueDepth = queueDepth;
+            this.inFlight = inFlight;
+            this.oldestPendingMs = oldestPendingMs;
+            this.lastBatchLagMs = lastBatchLagMs;
+            this.consecutiveFailures = consecutiveFailures;
+            this.rejected = rejected;
+            this.lastError = lastError;
+        }
+
+        @Override
+        public String toString() {
+            return "depth=" + queueDepth + " inFlight=" + inFlight + " oldest=" + oldestPendingMs
+                    + "ms lastLag=" + lastBatchLagMs + "ms failures=" + consecutiveFailures
+                    + " rejected=" + rejected;
+        }
+    }
+
+    private final Store<T> store;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry<T>> pending = new LinkedHashMap<>();
+    // The batch handed out by takeBatch and not yet settled; empty when none
+    private final LinkedHashMap<String, Entry<T>> inFlight = new LinkedHashMap<>();
+    private int failures;
+    // Entries at the front still to be sent alone, after a refused batch
+    private int isolating;
+    private int rejected;
+    private long retryAt;
+    private long lastBatchLagMs;
+    private String lastError;
+
+    public SyncOutbox(Store<T> store) {
+        this(store, System::currentTimeMillis);
+    }
+
+    SyncOutbox(Store<T> store, LongSupplier clock) {
+        this.store = store;
+        this.clock = clock;
+    }
+
+    // ===== QUEUEING =====
+
+    public synchronized void put(String path, T value) {
+        Entry<T> previous = pending.remove(path);
+        Entry<T> inFlightEntry = inFlight.get(path);
+        long enqueuedAt = previous != null ? previous.enqueuedAt
+                : inFlightEntry != null ? inFlightEntry.enqueuedAt
+                : clock.getAsLong();
+        pending.put(path, new Entry<>(path, value, enqueuedAt));
+        save();
+    }
+
+    // Entries saved by an earlier process. Paths written since start-up keep the newer value.
+    public synchronized void restore(List<Entry<T>> saved) {
+        if (saved == null || saved.isEmpty()) return;
+        LinkedHashMap<String, Entry<T>> merged = new LinkedHashMap<>();
+        for (Entry<T> entry : saved) {
+            if (entry != null && entry.path != null) merged.put(entry.path, entry);
+        }
+        for (Entry<T> entry : pending.values()) {
+            Entry<T> older = merged.remove(entry.path);
+            merged.put(entry.path, older != null
+                    ? new Entry<>(entry.path, entry.value, older.enqueuedAt) : entry);
+        }
+        pending.clear();
+        pending.putAll(merged);
+        save();
+    }
+
+    // ===== SENDING =====
+
+    // Up to max of the oldest entries as path -> value, or null when nothing is due:
+    // the queue is empty, a batch is already in flight, or a retry is backing off
+    public synchronized Map<String, T> takeBatch(int max) {
+        if (!inFlight.isEmpty() || pending.isEmpty() || clock.getAsLong() < retryAt) return null;
+        if (isolating > 0) {
+            max = 1;
+            isolating--;
+        }
+        Map<String, T> batch = new LinkedHashMap<>();
+        Iterator<Entry<T>> it = pending.values().iterator();
+        while (it.hasNext() && batch.size() < max) {
+            Entry<T> entry = it.next();
+            it.remove();
+            inFlight.put(entry.path, entry);
+            batch.put(entry.path, entry.value);
+        }
+        return batch;
+    }
+
+    public synchronized void onBatchSucceeded() {
+        long now = clock.getAsLong();
+        long oldest = now;
+        for (Entry<T> entry : inFlight.values()) oldest = Math.min(oldest, entry.enqueuedAt);
+        lastBatchLagMs = now - oldest;
+        inFlight.clear();
+        failures = 0;
+        retryAt = 0;
+        lastError = null;
+        save();
+    }
+
+    public synchronized void onBatchFailed(String error) {
+        requeueInFlight();
+        failures++;
+        lastError = error;
+        long backoff = Math.min(MAX_BACKOFF_MS, MIN_BACKOFF_MS << Math.min(failures - 1, 20));
+        // Up to 20% jitter, so devices that lost the same connection don't retry in step
+        backoff += ThreadLocalRandom.current().nextLong(backoff / 5 + 1);
+        retryAt = clock.getAsLong() + backoff;
+    }
+
+    // Firebase refused the batch before sending it, so as it stands it would fail the same
+    // way on every launch. A lone entry is dropped and returned; a larger batch goes back
+    // to the front, to be sent one entry at a time until the bad one is found.
+    public synchronized Entry<T> onBatchRejected(String error) {
+        lastError = error;
+        if (inFlight.size() != 1) {
+            isolating = requeueInFlight();
+            return null;
+        }
+        Entry<T> dropped = inFlight.values().iterator().next();
+        inFlight.clear();
+        rejected++;
+        save();
+        return dropped;
+    }
+
+    // How long until takeBatch will hand out the next retry; 0 if it would now
+    public synchronized long retryDelayMs() {
+        return Math.max(0, retryAt - clock.getAsLong());
+    }
+
+    // Connectivity came back: don't wait out the backoff
+    public synchronized void retryNow() {
+        retryAt = 0;
+    }
+
+    // ===== METRICS =====
+
+    public synchronized boolean isEmpty() {
+        return pending.isEmpty() && inFlight.isEmpty();
+    }
+
+    public synchronized Stats getStats() {
+        long now = clock.getAsLong();
+        long oldest = now;
+        for (Entry<T> entry : inFlight.values()) oldest = Math.min(oldest, entry.enqueuedAt);
+        for (Entry<T> entry : pending.values()) oldest = Math.min(oldest, entry.enqueuedAt);
+        return new Stats(pending.size() + inFlight.size(), inFlight.size(), now - oldest,
+                lastBatchLagMs, failures, rejected, lastError);
+    }
+
+    // Back to the front, unless a newer write to the same path has been queued since;
+    // returns how many entries went back
+    private int requeueInFlight() {
+        LinkedHashMap<String, Entry<T>> requeued = new LinkedHashMap<>();
+        for (Entry<T> entry : inFlight.values()) {
+            if (!pending.containsKey(entry.path)) requeued.put(entry.path, entry);
+        }
+        int count = requeued.size();
+        requeued.putAll(pending);
+        pending.clear();
+        pending.putAll(requeued);
+        inFlight.clear();
+        return count;
+    }
+
+    private void save() {
+        List<Entry<T>> all = new ArrayList<>(inFlight.size() + pending.size());
+        all.addAll(inFlight.values());
+        for (Entry<T> entry : pending.values()) {
+            if (!inFlight.containsKey(entry.path)) all.add(entry);
+        }
+        // A path both in flight and re-queued is saved with its newer value
+        if (all.size() < inFlight.size() + pending.size()) {
+            for (int i = 0; i < all.size(); i++) {
+                Entry<T> newer = pending.get(all.get(i).path);
+                if (newer != null) all.set(i, newer);
+            }
+        }
+        store.save(Collections.unmodifiableList(all));
+    }
+}
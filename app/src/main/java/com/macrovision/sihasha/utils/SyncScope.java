@@ -0,0 +1,91 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+import com.macrovision.sihasha.models.User;
+
+import java.util.Objects;
+
+/**
+ * Which patients a signed-in user's device downloads: one equality filter on a patient
+ * field, matching a Firebase orderByChild(field).equalTo(value) query and the
+ * PatientIndex lookup on the same key.
+ *
+ *   asha       - her own caseload, by ashaId
+ *   phcdoctor,
+ *   phcadmin,
+ *   phcnurse   - the PHC's patients by phcId, or every patient if no PHC is set
+ *
+ * Doctors are not narrowed to their referrals: the high-risk screen covers every patient
+ * they can reach, and referrals name them in referredTo, which no query here filters on.
+ *
+ * A device with nobody signed in downloads no patients.
+ */
+public final class SyncScope {
+
+    public static final String ASHA_ID = "ashaId";
+    public static final String PHC_ID = "phcId";
+
+    public static final SyncScope NONE = new SyncScope(null, null, false);
+    public static final SyncScope ALL = new SyncScope(null, null, true);
+
+    private final String field;
+    private final String value;
+    private final boolean all;
+
+    private SyncScope(String field, String value, boolean all) {
+        this.field = field;
+        this.value = value;
+        this.all = all;
+    }
+
+    public static SyncScope forUser(User user) {
+        if (user == null || user.getId() == null) return NONE;
+        String phcId = user.getPhcId();
+        boolean hasPhc = phcId != null && !phcId.isEmpty();
+        if ("asha".equals(user.getRole())) {
+            return new SyncScope(ASHA_ID, user.getId(), false);
+        }
+        if ("phcdoctor".equals(user.getRole()) || "phcadmin".equals(user.getRole())
+                || "phcnurse".equals(user.getRole())) {
+            return hasPhc ? new SyncScope(PHC_ID, phcId, false) : ALL;
+        }
+        return NONE;
+    }
+
+    // null when the scope is ALL or NONE
+    public String getField() { return field; }
+    public String getValue() { return value; }
+
+    public boolean isAll() { return all; }
+    public boolean isNone() { return field == null && !all; }
+
+    public boolean matches(Patient p) {
+        if (all) return true;
+        if (field == null || p == null) return false;
+        switch (field) {
+            case ASHA_ID: return value.equals(p.getAshaId());
+            case PHC_ID:  return value.equals(p.getPhcId());
+            default:      return false;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SyncScope)) return false;
+        SyncScope other = (SyncScope) o;
+        return all == other.all && Objects.equals(field, other.field) && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, value, all);
+    }
+
+    @Override
+    public String toString() {
+        if (all) return "all";
+        if (field == null) return "none";
+        return field + "=" + value;
+    }
+}
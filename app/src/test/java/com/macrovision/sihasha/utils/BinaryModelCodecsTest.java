@@ -0,0 +1,105 @@
+package com.macrovision.sihasha.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.macrovision.sihasha.models.InventoryItem;
+import com.macrovision.sihasha.models.Patient;
+import com.macrovision.sihasha.models.Staff;
+import com.macrovision.sihasha.models.User;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trips every model through its binary codec and checks the format stays
+ * well below the JSON it replaces.
+ */
+public class BinaryModelCodecsTest {
+
+    private final Gson gson = ModelTypeAdapters.register(new GsonBuilder()).create();
+
+    private static Patient patient(int i) {
+        Patient p = new Patient("P" + i, "Patient " + i, 20 + i % 15, "98765" + (10000 + i),
+                i % 2 == 0 ? "Rampur" : "Sitapur", "pregnant", "ASHA" + i % 5, "PHC1", i % 7 == 0);
+        p.setHusbandName("Husband " + i);
+        p.setBlock("Balianta");
+        p.setDistrict("Khordha");
+        p.setReligion("Hindu");
+        p.setCaste("OBC");
+        p.setBloodGroup("B+");
+        p.setLmpDate("2025-01-15");
+        p.setEddDate("2025-10-22");
+        p.setRegistrationDate("2025-02-01");
+        p.setRiskFactors(new String[]{"anemia", "hypertension"});
+        p.setHeight(152);
+        p.setPregnancyNumber(2);
+        p.setAssignedDoctor("DOC1");
+        return p;
+    }
+
+    @Test
+    public void patient_roundTrips() throws Exception {
+        StringDictionary writeDictionary = new StringDictionary();
+        StringDictionary readDictionary = new StringDictionary();
+        for (int i = 0; i < 50; i++) {
+            Patient original = patient(i);
+            byte[] bytes = BinaryModelCodecs.PATIENT.encode(original, writeDictionary);
+            Patient decoded = BinaryModelCodecs.PATIENT.decode(bytes, 0, bytes.length, 1, readDictionary);
+            assertEquals(gson.toJson(original), gson.toJson(decoded));
+        }
+        assertEquals(writeDictionary.size(), readDictionary.size());
+    }
+
+    @Test
+    public void otherModels_roundTrip() throws Exception {
+        InventoryItem item = new InventoryItem("I1", "IFA tablets", "medicine", 40, 100,
+                "2026-03-01", "B-17", "State store", 0.75);
+        Map<String, Integer> distribution = new HashMap<>();
+        distribution.put("PHC1", 25);
+        item.setPhcDistribution(distribution);
+
+        User user = new User("U1", "Asha Devi", "asha", "9876500000", "Rampur",
+                "Balianta", "Khordha", "Odisha", "PHC1", "secret");
+        user.setPerformance(new User.Performance(30, 21, 70));
+
+        Staff staff = new Staff("U1", "Asha Devi", "asha", "9876500000", "Rampur", "Khordha");
+        staff.setPerformance(new Staff.Performance(30, 21, 70.5, 12, 3));
+
+        assertEquals(gson.toJson(item), gson.toJson(roundTrip(BinaryModelCodecs.INVENTORY_ITEM, item)));
+        assertEquals(gson.toJson(user), gson.toJson(roundTrip(BinaryModelCodecs.USER, user)));
+        assertEquals(gson.toJson(staff), gson.toJson(roundTrip(BinaryModelCodecs.STAFF, staff)));
+    }
+
+    @Test
+    public void patient_isMuchSmallerThanJson() throws Exception {
+        StringDictionary dictionary = new StringDictionary();
+        long binaryBytes = 0;
+        long jsonBytes = 0;
+        for (int i = 0; i < 1000; i++) {
+            Patient p = patient(i);
+            binaryBytes += BinaryModelCodecs.PATIENT.encode(p, dictionary).length;
+            jsonBytes += gson.toJson(p).getBytes("UTF-8").length;
+        }
+        assertTrue("binary " + binaryBytes + " vs json " + jsonBytes, binaryBytes * 3 < jsonBytes);
+    }
+
+    @Test
+    public void newerSchema_isRejected() throws Exception {
+        byte[] bytes = BinaryModelCodecs.PATIENT.encode(patient(1), new StringDictionary());
+        try {
+            BinaryModelCodecs.PATIENT.decode(bytes, 0, bytes.length, 99, new StringDictionary());
+            fail("Expected unsupported schema to fail");
+        } catch (java.io.IOException expected) {
+            // ok
+        }
+    }
+
+    private static <T> T roundTrip(RecordCodec<T> codec, T record) throws Exception {
+        byte[] bytes = codec.encode(record, new StringDictionary());
+        return codec.decode(bytes, 0, bytes.length, codec.getSchemaVersion(), new StringDictionary());
+    }
+}
@@ -0,0 +1,67 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChangeSetTest {
+
+    private static Patient patient(String id, String ashaId) {
+        Patient p = new Patient();
+        p.setId(id);
+        p.setAshaId(ashaId);
+        return p;
+    }
+
+    @Test
+    public void accumulator_coalescesPerRecord() {
+        ChangeSet.Accumulator<Patient> pending = new ChangeSet.Accumulator<>(Patient::getId);
+        Patient a = patient("A", "X"), a2 = patient("A", "X");
+        Patient b = patient("B", "X"), b2 = patient("B", "X");
+        Patient c = patient("C", "X");
+        Patient d = patient("D", "X"), d2 = patient("D", "X");
+
+        pending.add(new ChangeSet.Builder<Patient>().insert(a).update(b, b2).remove(d).build());
+        pending.add(new ChangeSet.Builder<Patient>().update(a, a2).insert(c).insert(d2).build());
+        pending.add(new ChangeSet.Builder<Patient>().remove(c).build());
+        ChangeSet<Patient> changes = pending.drain();
+
+        assertEquals(1, changes.getInserted().size());
+        assertSame(a2, changes.getInserted().get(0));   // inserted, then edited
+        assertEquals(2, changes.getUpdated().size());
+        assertSame(b, changes.getUpdated().get(0).before);
+        assertSame(d, changes.getUpdated().get(1).before); // removed, then added back
+        assertSame(d2, changes.getUpdated().get(1).after);
+        assertTrue(changes.getRemoved().isEmpty());      // C came and went
+        assertTrue(pending.drain().isEmpty());
+    }
+
+    @Test
+    public void applyTo_patchesInPlaceAndRespectsTheFilter() {
+        Patient a = patient("A", "X"), b = patient("B", "X"), c = patient("C", "X");
+        List<Patient> shown = new ArrayList<>();
+        shown.add(a);
+        shown.add(b);
+        shown.add(c);
+
+        Patient a2 = patient("A", "X");
+        Patient b2 = patient("B", "Y");  // reassigned away from this list
+        Patient f = patient("F", "X");
+        Patient g = patient("G", "Y");
+        new ChangeSet.Builder<Patient>()
+                .update(a, a2).update(b, b2).update(patient("E", "Z"), patient("E", "X")) // moved into this list
+                .insert(f).insert(g).remove(c)
+                .build()
+                .applyTo(shown, Patient::getId, p -> "X".equals(p.getAshaId()));
+
+        assertEquals(3, shown.size());
+        assertSame(a2, shown.get(0));
+        assertEquals("E", shown.get(1).getId());
+        assertSame(f, shown.get(2));
+    }
+}
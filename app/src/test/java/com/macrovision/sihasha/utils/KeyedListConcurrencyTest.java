@@ -0,0 +1,157 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress test for the DataManager locking model: writers merge whole batches into a
+ * KeyedList and its derived PatientCounters under the list's write lock, while readers
+ * iterate snapshots and query the counters under the read lock.
+ */
+public class KeyedListConcurrencyTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int PATIENTS_PER_WRITER = 200;
+    private static final int MERGES_PER_WRITER = 300;
+
+    private final KeyedList<Patient> patients = new KeyedList<>(Patient::getId);
+    private final PatientCounters counters = new PatientCounters();
+
+    // Every merge rewrites all of one writer's patients with the same generation as age
+    private void merge(int writer, int generation) {
+        List<Patient> batch = new ArrayList<>(PATIENTS_PER_WRITER);
+        for (int k = 0; k < PATIENTS_PER_WRITER; k++) {
+            Patient p = new Patient();
+            p.setId("W" + writer + "-" + k);
+            p.setAshaId("ASHA" + writer);
+            p.setAge(generation);
+            p.setHighRisk(generation % 2 == 0);
+            batch.add(p);
+        }
+        Lock lock = patients.writeLock();
+        lock.lock();
+        try {
+            for (Patient p : batch) {
+                patients.put(p);
+                counters.put(p);
+            }
+            // Shrink and regrow, so readers also race against removals
+            if (generation % 5 == 0) {
+                String id = "W" + writer + "-0";
+                patients.remove(id);
+                counters.remove(id);
+                patients.put(batch.get(0));
+                counters.put(batch.get(0));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    public void concurrentMergesAndReads_neverExposePartialState() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            writers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int g = 1; g <= MERGES_PER_WRITER; g++) merge(writer, g);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "writer-" + w));
+        }
+        threads.addAll(writers);
+
+        for (int r = 0; r < READERS; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    while (writing.get()) {
+                        checkSnapshot(patients.snapshot());
+                        for (Patient ignored : patients) { } // iterating must never throw
+                        checkCountersMatchList();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "reader-" + r));
+        }
+
+        for (Thread t : threads) t.start();
+        start.countDown();
+        for (Thread t : writers) t.join();
+        writing.set(false);
+        for (Thread t : threads) t.join();
+
+        if (failure.get() != null) throw new AssertionError(failure.get());
+        assertEquals(WRITERS * PATIENTS_PER_WRITER, patients.size());
+        checkSnapshot(patients.snapshot());
+        checkCountersMatchList();
+        for (int w = 0; w < WRITERS; w++) {
+            assertEquals(PATIENTS_PER_WRITER, counters.getForAsha("ASHA" + w).getTotal());
+        }
+    }
+
+    // Within a snapshot, all of one writer's patients come from the same merge
+    private static void checkSnapshot(List<Patient> snapshot) {
+        int[] generation = new int[WRITERS];
+        for (Patient p : snapshot) {
+            int writer = p.getId().charAt(1) - '0';
+            if (generation[writer] == 0) generation[writer] = p.getAge();
+            assertEquals("Half-merged batch visible for writer " + writer, generation[writer], p.getAge());
+        }
+        try {
+            snapshot.add(new Patient());
+            fail("Snapshot must be read-only");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    private void checkCountersMatchList() {
+        Lock lock = patients.readLock();
+        lock.lock();
+        try {
+            PatientAnalytics all = counters.getAll();
+            assertEquals(patients.size(), all.getTotal());
+            int highRisk = 0;
+            for (Patient p : patients) if (p.isHighRisk()) highRisk++;
+            assertEquals(highRisk, all.getHighRisk());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    public void snapshot_isSharedUntilTheNextChange() {
+        Patient p = new Patient();
+        p.setId("P1");
+        patients.put(p);
+        List<Patient> first = patients.snapshot();
+        assertSame(first, patients.snapshot());
+        assertNull(patients.remove("missing"));
+        assertSame(first, patients.snapshot());
+
+        patients.remove("P1");
+        assertNotSame(first, patients.snapshot());
+        assertEquals(1, first.size());
+        assertTrue(patients.snapshot().isEmpty());
+    }
+}
@@ -0,0 +1,137 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+import com.macrovision.sihasha.models.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Full-snapshot merges at 10k patients: a resync that changes nothing must leave the
+ * list untouched, and one that changes a handful of records must report exactly those.
+ * The timings against the old merge live in the instrumented PatientMergerBenchmark.
+ */
+public class PatientMergerTest {
+
+    private static final int PATIENTS = 10_000;
+    private static final int CHANGED = 100;
+
+    private final KeyedList<Patient> patients = new KeyedList<>(Patient::getId);
+    private final PatientVersions versions = new PatientVersions("device-A");
+    private final PatientMerger merger = new PatientMerger(patients, versions);
+
+    private static Patient patient(int i) {
+        Patient p = new Patient();
+        p.setId("P" + i);
+        p.setName("Patient " + i);
+        p.setAge(20 + i % 20);
+        p.setVillage("Village " + i % 50);
+        p.setAshaId("ASHA" + i % 40);
+        p.setPhoneNumber("98" + (10_000_000 + i));
+        p.setPregnancyStatus("pregnant");
+        p.setRiskFactors(new String[]{"anemia", "age"});
+        p.setHighRisk(i % 7 == 0);
+        return p;
+    }
+
+    // What Firebase hands back on every sync: fresh objects for every record
+    private static List<Patient> serverCopy(int changedFrom) {
+        List<Patient> copy = new ArrayList<>(PATIENTS);
+        for (int i = 0; i < PATIENTS; i++) {
+            Patient p = patient(i);
+            if (i >= changedFrom && i < changedFrom + CHANGED) p.setVillage("Moved " + i);
+            copy.add(p);
+        }
+        return copy;
+    }
+
+    @Test
+    public void resyncAt10k_appliesOnlyWhatChanged() {
+        ChangeSet<Patient> initial = merger.merge(serverCopy(PATIENTS), true).changes;
+        assertEquals(PATIENTS, initial.getInserted().size());
+
+        // Nothing changed: no changes, and readers keep the same snapshot
+        List<Patient> before = patients.snapshot();
+        PatientMerger.Result unchanged = merger.merge(serverCopy(PATIENTS), true);
+        assertTrue(unchanged.changes.isEmpty());
+        assertSame(before, patients.snapshot());
+
+        // 1% changed: exactly those come back as updates, in place
+        PatientMerger.Result changed = merger.merge(serverCopy(500), true);
+        assertEquals(CHANGED, changed.changes.size());
+        assertEquals(CHANGED, changed.changes.getUpdated().size());
+        assertTrue(changed.pushBack.isEmpty());
+        ChangeSet.Update<Patient> first = changed.changes.getUpdated().get(0);
+        assertEquals("Village 0", first.before.getVillage());
+        assertEquals("Moved 500", first.after.getVillage());
+        assertEquals("P500", patients.snapshot().get(500).getId());
+        assertEquals(PATIENTS, patients.size());
+    }
+
+    @Test
+    public void completeSnapshot_removesOnlyRecordsSeenOnTheServer() {
+        merger.merge(serverCopy(PATIENTS), true);
+        Patient offline = patient(PATIENTS);
+        versions.stampLocalEdit(offline, null);
+        patients.put(offline); // registered offline, never pushed
+
+        List<Patient> server = serverCopy(PATIENTS);
+        server.remove(9_999);
+        ChangeSet<Patient> changes = merger.merge(server, true).changes;
+
+        assertEquals(1, changes.size());
+        assertEquals("P9999", changes.getRemoved().get(0).getId());
+        assertSame(offline, patients.get(offline.getId()));
+        assertTrue(merger.remove("P9999").isEmpty());
+    }
+
+    @Test
+    public void emptyCompleteSnapshot_removesEveryRecordSeenOnTheServer() {
+        merger.merge(serverCopy(PATIENTS), true);
+        Patient offline = patient(PATIENTS);
+        versions.stampLocalEdit(offline, null);
+        patients.put(offline);
+
+        ChangeSet<Patient> changes = merger.merge(new ArrayList<>(), true).changes;
+
+        assertEquals(PATIENTS, changes.getRemoved().size());
+        assertEquals(1, patients.size());
+        assertSame(offline, patients.get(offline.getId()));
+    }
+
+    @Test
+    public void localEditTheServerLacks_isKeptAndPushedBack() {
+        merger.merge(serverCopy(PATIENTS), true);
+        Patient local = patients.get("P42");
+        local.setPhoneNumber("9000000000");
+        assertTrue(versions.stampLocalEdit(local, local));
+
+        PatientMerger.Result result = merger.merge(serverCopy(PATIENTS), true);
+        assertEquals(1, result.pushBack.size());
+        assertEquals("9000000000", patients.get("P42").getPhoneNumber());
+        assertSame(result.pushBack.get(0), patients.get("P42"));
+    }
+
+    @Test
+    public void scopeChange_dropsOnlyDownloadedPatientsOutsideTheScope() {
+        merger.merge(serverCopy(PATIENTS), true);
+        Patient offline = patient(PATIENTS);
+        offline.setAshaId("ASHA99");
+        patients.put(offline); // registered offline, never pushed
+
+        User asha = new User();
+        asha.setId("ASHA3");
+        asha.setRole("asha");
+        SyncScope scope = SyncScope.forUser(asha);
+        ChangeSet<Patient> changes = merger.retain(scope::matches);
+
+        assertEquals(PATIENTS - PATIENTS / 40, changes.getRemoved().size());
+        assertEquals(PATIENTS / 40 + 1, patients.size());
+        assertSame(offline, patients.get(offline.getId()));
+        for (Patient p : patients) assertTrue(p == offline || scope.matches(p));
+    }
+}
@@ -0,0 +1,52 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PatientSearchIndexTest {
+
+    private static Patient patient(String id, String name, String phone) {
+        Patient p = new Patient();
+        p.setId(id);
+        p.setName(name);
+        p.setPhoneNumber(phone);
+        return p;
+    }
+
+    @Test
+    public void phoneNumbers_matchHoweverTheyAreTyped() {
+        PatientSearchIndex index = new PatientSearchIndex();
+        index.rebuild(Arrays.asList(
+                patient("A", "Sita Devi", "98765-43210"),
+                patient("B", "Gita Devi", "+91 91234 56789"),
+                patient("C", "Rita Devi", "9000000000")));
+
+        assertEquals("A", index.search("98765-43210").get(0).getId());
+        assertEquals("A", index.search("9876543210").get(0).getId());
+        assertEquals("A", index.search("sita 98765-43210").get(0).getId());
+        assertEquals("B", index.search("+91 91234 56789").get(0).getId());
+        assertEquals("B", index.search("(912) 34-567").get(0).getId());
+        assertEquals(3, index.search("devi").size());
+        assertTrue(index.search("gita 98765").isEmpty());
+    }
+
+    @Test
+    public void countryCodeOrTrunkZero_findsTheTenDigitNumber() {
+        PatientSearchIndex index = new PatientSearchIndex();
+        index.rebuild(Arrays.asList(
+                patient("A", "Sita Devi", "9876543210"),
+                patient("B", "Gita Devi", "+91 91234 56789")));
+
+        assertEquals("A", index.search("+91 98765 43210").get(0).getId());
+        assertEquals("A", index.search("+919876543210").get(0).getId());
+        assertEquals("A", index.search("09876543210").get(0).getId());
+        assertEquals("A", index.search("sita +91-98765-43210").get(0).getId());
+        assertEquals("B", index.search("+91 91234 56789").get(0).getId());
+        assertEquals("B", index.search("9123456789").get(0).getId());
+    }
+}
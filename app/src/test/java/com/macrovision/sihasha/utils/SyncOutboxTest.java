@@ -0,0 +1,124 @@
+package com.macrovision.sihasha.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * An ASHA makes edits offline, reconnects briefly and loses the connection again:
+ * nothing may be dropped, and every saved copy must still hold what the server lacks.
+ */
+public class SyncOutboxTest {
+
+    private long now = 1_000_000;
+    private List<SyncOutbox.Entry<String>> saved = new ArrayList<>();
+    private final SyncOutbox<String> outbox = new SyncOutbox<>(entries -> saved = entries, () -> now);
+
+    private List<String> savedPaths() {
+        List<String> paths = new ArrayList<>();
+        for (SyncOutbox.Entry<String> entry : saved) paths.add(entry.path + "=" + entry.value);
+        return paths;
+    }
+
+    @Test
+    public void offlineEdits_coalescePerPathAndGoOutAsOneBatch() {
+        for (int i = 0; i < 30; i++) {
+            outbox.put("patients/P" + (i % 10), "v" + i);
+            now += 1000;
+        }
+        outbox.put("patients/P3", null);
+
+        assertEquals(10, outbox.getStats().queueDepth);
+        assertEquals(30_000, outbox.getStats().oldestPendingMs);
+        Map<String, String> batch = outbox.takeBatch(100);
+        assertEquals(10, batch.size());
+        assertEquals("v29", batch.get("patients/P9"));
+        assertTrue(batch.containsKey("patients/P3"));
+        assertNull(batch.get("patients/P3"));
+        assertNull(outbox.takeBatch(100)); // only one batch in flight
+
+        now += 500;
+        outbox.onBatchSucceeded();
+        assertTrue(outbox.isEmpty());
+        assertTrue(saved.isEmpty());
+        assertEquals(30_500, outbox.getStats().lastBatchLagMs);
+    }
+
+    @Test
+    public void failedBatch_isRetriedFirstWithBackoff() {
+        outbox.put("patients/A", "a1");
+        outbox.put("patients/B", "b1");
+        assertEquals(2, outbox.takeBatch(100).size());
+
+        // Edited again while the batch was in flight, then the batch fails
+        outbox.put("patients/A", "a2");
+        outbox.put("patients/C", "c1");
+        assertEquals(Arrays.asList("patients/A=a2", "patients/B=b1", "patients/C=c1"), savedPaths());
+        outbox.onBatchFailed("Permission denied");
+
+        assertEquals(1, outbox.getStats().consecutiveFailures);
+        assertNull(outbox.takeBatch(100)); // backing off
+        long delay = outbox.retryDelayMs();
+        assertTrue(delay >= SyncOutbox.MIN_BACKOFF_MS && delay <= SyncOutbox.MIN_BACKOFF_MS * 6 / 5 + 1);
+
+        now += delay;
+        Map<String, String> retry = outbox.takeBatch(100);
+        assertEquals(Arrays.asList("patients/B", "patients/A", "patients/C"), new ArrayList<>(retry.keySet()));
+        assertEquals("a2", retry.get("patients/A"));
+        outbox.onBatchFailed("Permission denied");
+        assertTrue(outbox.retryDelayMs() >= 2 * SyncOutbox.MIN_BACKOFF_MS);
+
+        outbox.retryNow(); // reconnected
+        assertEquals(2, outbox.takeBatch(2).size());
+        outbox.onBatchSucceeded();
+        assertEquals(0, outbox.getStats().consecutiveFailures);
+        assertEquals(1, outbox.getStats().queueDepth);
+    }
+
+    @Test
+    public void restoredEntries_keepTheirAgeAndLoseToNewerWrites() {
+        long earlier = now - 60_000;
+        outbox.put("patients/A", "new");
+        outbox.restore(Arrays.asList(
+                new SyncOutbox.Entry<>("patients/A", "old", earlier),
+                new SyncOutbox.Entry<>("patients/B", "b", earlier)));
+
+        assertEquals(Arrays.asList("patients/B=b", "patients/A=new"), savedPaths());
+        assertEquals(60_000, outbox.getStats().oldestPendingMs);
+        assertEquals("new", outbox.takeBatch(100).get("patients/A"));
+    }
+
+    @Test
+    public void refusedBatch_isResentOneByOneAndOnlyTheBadWriteIsDropped() {
+        outbox.put("patients/A", "a");
+        outbox.put("patients/B.bad", "b");
+        outbox.put("patients/C", "c");
+        assertEquals(3, outbox.takeBatch(100).size());
+        outbox.put("patients/D", "d"); // queued while the batch was in flight
+
+        assertNull(outbox.onBatchRejected("Invalid key"));
+        assertEquals(0, outbox.retryDelayMs());
+        assertEquals(Arrays.asList("patients/A"), new ArrayList<>(outbox.takeBatch(100).keySet()));
+        outbox.onBatchSucceeded();
+        assertEquals(Arrays.asList("patients/B.bad"), new ArrayList<>(outbox.takeBatch(100).keySet()));
+        SyncOutbox.Entry<String> dropped = outbox.onBatchRejected("Invalid key");
+        assertEquals("patients/B.bad", dropped.path);
+        assertEquals("Invalid key", outbox.getStats().lastError);
+        assertEquals(Arrays.asList("patients/C=c", "patients/D=d"), savedPaths());
+
+        assertEquals(Arrays.asList("patients/C"), new ArrayList<>(outbox.takeBatch(100).keySet()));
+        outbox.onBatchSucceeded();
+        assertEquals(Arrays.asList("patients/D"), new ArrayList<>(outbox.takeBatch(100).keySet()));
+        outbox.onBatchSucceeded();
+
+        SyncOutbox.Stats stats = outbox.getStats();
+        assertEquals(0, stats.queueDepth);
+        assertEquals(1, stats.rejected);
+        assertEquals(0, stats.consecutiveFailures);
+    }
+}
@@ -0,0 +1,58 @@
+package com.macrovision.sihasha.utils;
+
+import com.macrovision.sihasha.models.Patient;
+import com.macrovision.sihasha.models.User;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SyncScopeTest {
+
+    private static User user(String id, String role, String phcId) {
+        User u = new User();
+        u.setId(id);
+        u.setRole(role);
+        u.setPhcId(phcId);
+        return u;
+    }
+
+    private static Patient patient(String ashaId, String phcId) {
+        Patient p = new Patient();
+        p.setId("P-" + ashaId);
+        p.setAshaId(ashaId);
+        p.setPhcId(phcId);
+        return p;
+    }
+
+    @Test
+    public void doctor_seesTheirPhcOrEveryPatient() {
+        SyncScope withPhc = SyncScope.forUser(user("D1", "phcdoctor", "PHC1"));
+        assertEquals(SyncScope.PHC_ID, withPhc.getField());
+        assertEquals("PHC1", withPhc.getValue());
+        assertTrue(withPhc.matches(patient("A1", "PHC1")));
+        assertFalse(withPhc.matches(patient("A2", "PHC2")));
+
+        // Referrals never set assignedDoctor, so a scope on it would download nothing
+        SyncScope withoutPhc = SyncScope.forUser(user("D1", "phcdoctor", null));
+        assertTrue(withoutPhc.isAll());
+        Patient referred = patient("A1", null);
+        referred.setReferredTo("D1");
+        assertTrue(withoutPhc.matches(referred));
+        assertTrue(withoutPhc.matches(patient("A2", "PHC2")));
+        assertEquals(SyncScope.ALL, SyncScope.forUser(user("D1", "phcdoctor", "")));
+    }
+
+    @Test
+    public void ashaNurseAndAdmin_keepTheirScopes() {
+        SyncScope asha = SyncScope.forUser(user("A1", "asha", "PHC1"));
+        assertEquals(SyncScope.ASHA_ID, asha.getField());
+        assertTrue(asha.matches(patient("A1", "PHC9")));
+        assertFalse(asha.matches(patient("A2", "PHC1")));
+
+        assertEquals(SyncScope.ALL, SyncScope.forUser(user("N1", "phcnurse", null)));
+        assertEquals(SyncScope.PHC_ID, SyncScope.forUser(user("M1", "phcadmin", "PHC1")).getField());
+        assertTrue(SyncScope.forUser(null).isNone());
+        assertTrue(SyncScope.forUser(user("X1", "visitor", "PHC1")).isNone());
+    }
+}